@@ -3,7 +3,6 @@ package com.gql;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.IOException;
 
 import com.gql.graphql.schema.idl.RuntimeWiring;
 import com.gql.graphql.schema.idl.SchemaGenerator;
@@ -44,11 +43,9 @@ public class App {
         SchemaGenerator schemaGenerator = new SchemaGenerator();
         TypeDefinitionRegistry typeRegistry = new TypeDefinitionRegistry();
         try {
-            typeRegistry.merge(schemaParser.parse(readFile(file)));
+            typeRegistry.merge(schemaParser.parse(file));
         } catch (SchemaProblem e) {
             e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         RuntimeWiring wiring = buildRuntimeWiring();
         GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeRegistry, wiring);
@@ -60,27 +57,6 @@ public class App {
         return schemaPrinter.print(gqlSchema);
     }
 
-    private String readFile(File file) throws IOException {
-        String fileAsString = null;
-        BufferedReader br = null;
-        try {
-            br = new BufferedReader(new FileReader(file));
-            StringBuilder sb = new StringBuilder();
-            String line = br.readLine();
-            while (line != null) {
-                sb.append(line).append("\n");
-                line = br.readLine();
-            }
-            fileAsString = sb.toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (br != null)
-                br.close();
-        }
-        return fileAsString;
-    }
-
     public String getFileContents(String filePath) {
         String fileAsString = null;
         BufferedReader br = null;
@@ -104,7 +80,7 @@ public class App {
         SchemaPrinter sp = new SchemaPrinter();
         GraphQLSchema gql = null;
         try {
-            gql = app.parseSchema(app.getFileContents(starWarsSchema));
+            gql = app.parseSchema(new File(starWarsSchema));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,47 @@
+package com.gql.graphql.language;
+
+import graphql.language.SourceLocation;
+
+/**
+ * A source location that also knows the name of the source, typically the schema file, it came from
+ */
+public class NamedSourceLocation extends SourceLocation {
+
+    private final String sourceName;
+
+    public NamedSourceLocation(int line, int column, String sourceName) {
+        super(line, column);
+        this.sourceName = sourceName;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NamedSourceLocation)) return false;
+        if (!super.equals(o)) return false;
+
+        NamedSourceLocation that = (NamedSourceLocation) o;
+
+        return sourceName == null ? that.sourceName == null : sourceName.equals(that.sourceName);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (sourceName != null ? sourceName.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceLocation{" +
+                "line=" + getLine() +
+                ", column=" + getColumn() +
+                ", sourceName=" + sourceName +
+                '}';
+    }
+}
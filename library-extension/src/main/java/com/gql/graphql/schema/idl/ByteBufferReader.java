@@ -0,0 +1,75 @@
+package com.gql.graphql.schema.idl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * A {@link Reader} that decodes characters straight out of a {@link ByteBuffer}, typically a memory mapped
+ * schema file.  Characters are decoded a window at a time so no copy of the whole text is ever made, and
+ * malformed input is reported rather than silently replaced.
+ */
+class ByteBufferReader extends Reader {
+
+    private static final int WINDOW_SIZE = 1024 * 8;
+
+    private final ByteBuffer source;
+    private final CharsetDecoder decoder;
+    private final CharBuffer window = CharBuffer.allocate(WINDOW_SIZE);
+    private boolean flushed;
+
+    ByteBufferReader(ByteBuffer source, CharsetDecoder decoder) {
+        this.source = source;
+        this.decoder = decoder;
+        this.window.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        // the lexer pulls one character at a time so this must not allocate the way Reader.read() does
+        if (!window.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return window.get();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!window.hasRemaining() && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, window.remaining());
+        window.get(cbuf, off, n);
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        window.clear();
+        while (window.position() == 0 && !flushed) {
+            CoderResult result;
+            if (source.hasRemaining()) {
+                result = decoder.decode(source, window, true);
+            } else {
+                result = decoder.flush(window);
+                flushed = result.isUnderflow();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+        window.flip();
+        return window.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+        flushed = true;
+        window.clear().flip();
+    }
+}
@@ -0,0 +1,120 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.Definition;
+import graphql.language.TypeDefinition;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static graphql.Assert.assertNotNull;
+
+/**
+ * A registry of type definitions that many threads can add to and merge into at once, say plugin modules that each
+ * contribute their own schema definitions while an application starts up.
+ *
+ * The definitions are held in a {@link PersistentTypeDefinitionRegistry}.  A change is made to a fork of it, which
+ * shares every definition with the original, and the fork is then swapped in with a compare and set.  A change so
+ * costs in proportion to the definitions it writes, not to the size of the registry, and a writer that loses a race
+ * simply tries again against the newer definitions.  No lock is ever taken, readers never wait on writers and every
+ * {@link #snapshot()} is a consistent view of all changes up to some point.  Since each change is applied to the
+ * latest definitions a redefinition is always detected, it is reported to whichever writer got there second.
+ */
+public class ConcurrentTypeDefinitionRegistry {
+
+    private final AtomicReference<Definitions> definitions;
+
+    public ConcurrentTypeDefinitionRegistry() {
+        this.definitions = new AtomicReference<Definitions>(new Definitions(new PersistentTypeDefinitionRegistry()));
+    }
+
+    /**
+     * @param typeRegistry the definitions to start with, which are copied
+     */
+    public ConcurrentTypeDefinitionRegistry(TypeDefinitionRegistry typeRegistry) {
+        assertNotNull(typeRegistry, "You must provide a type registry");
+        this.definitions = new AtomicReference<Definitions>(new Definitions(new PersistentTypeDefinitionRegistry(typeRegistry)));
+    }
+
+    /**
+     * Adds a definition to the registry
+     *
+     * @param definition the definition to add
+     *
+     * @return an error if the definition redefines one already added, in which case nothing is added, otherwise null
+     */
+    public GraphQLError add(Definition definition) {
+        while (true) {
+            Definitions current = definitions.get();
+            PersistentTypeDefinitionRegistry changed = current.typeRegistry.fork();
+            GraphQLError error = changed.add(definition);
+            if (error != null) {
+                return error;
+            }
+            if (definitions.compareAndSet(current, new Definitions(changed))) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Merges a whole registry into this one.  Either all of its definitions are added or, if any of them is a
+     * redefinition, none are.
+     *
+     * @param typeRegistry the registry to be merged into this one
+     *
+     * @return this registry
+     *
+     * @throws SchemaProblem if there are problems merging the types such as redefinitions
+     */
+    public ConcurrentTypeDefinitionRegistry merge(TypeDefinitionRegistry typeRegistry) throws SchemaProblem {
+        while (true) {
+            Definitions current = definitions.get();
+            PersistentTypeDefinitionRegistry changed = current.typeRegistry.fork().merge(typeRegistry);
+            if (definitions.compareAndSet(current, new Definitions(changed))) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Looks a type up in the latest definitions
+     *
+     * @param typeName the name of the type
+     *
+     * @return the type definition or null if there is no such type
+     */
+    public TypeDefinition getType(String typeName) {
+        return definitions.get().typeRegistry.getType(typeName);
+    }
+
+    /**
+     * Returns the definitions as they are now.  The snapshot is frozen and does not see later changes, hand it to a
+     * {@link SchemaGenerator} once every module has made its contribution.  It is made once for each set of
+     * definitions, so asking again before the next change costs nothing.
+     *
+     * @return a frozen registry of the definitions
+     */
+    public TypeDefinitionRegistry snapshot() {
+        Definitions current = definitions.get();
+        TypeDefinitionRegistry snapshot = current.snapshot;
+        if (snapshot == null) {
+            // two threads may both make it, either one will do
+            snapshot = current.typeRegistry.toTypeDefinitionRegistry();
+            current.snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * One version of the definitions, never changed once published, and its frozen copy once asked for
+     */
+    private static final class Definitions {
+        private final PersistentTypeDefinitionRegistry typeRegistry;
+        private volatile TypeDefinitionRegistry snapshot;
+
+        Definitions(PersistentTypeDefinitionRegistry typeRegistry) {
+            this.typeRegistry = typeRegistry;
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.Definition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.SourceLocation;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import com.gql.graphql.language.NamedSourceLocation;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+import com.gql.graphql.schema.idl.errors.SchemaRedefinitionError;
+import com.gql.graphql.schema.idl.errors.SchemaSyntaxError;
+import com.gql.graphql.schema.idl.errors.TypeRedefinitionError;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the top level definitions in a UTF-8 encoded schema source.  The index is built by a quick scan that
+ * only follows the structure of the source, it records the name, kind and byte range of every definition, and the
+ * interfaces an object type or type extension implements, without building any nodes.  A definition is then parsed
+ * by {@link SdlParser} the first time it is asked for and kept.
+ *
+ * Lookups are thread safe, each definition is parsed at most once.
+ */
+class DefinitionIndex {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int TYPE = 0;
+    private static final int SCALAR = 1;
+    private static final int EXTENSION = 2;
+    private static final int SCHEMA = 3;
+
+    private final ByteBuffer source;
+    private final String sourceName;
+    private final Map<String, Entry> types = new LinkedHashMap<String, Entry>();
+    private final Map<String, Entry> scalars = new LinkedHashMap<String, Entry>();
+    private final Map<String, List<Entry>> extensions = new LinkedHashMap<String, List<Entry>>();
+    private final Map<String, Set<String>> implementations = new HashMap<String, Set<String>>();
+    private Entry schema;
+
+    private DefinitionIndex(ByteBuffer source, String sourceName) {
+        this.source = source;
+        this.sourceName = sourceName;
+    }
+
+    /**
+     * Scans a source into an index of its definitions
+     *
+     * @param source     the UTF-8 encoded source, which is kept by the index and must not change
+     * @param sourceName the name of the source to record in source locations or null
+     *
+     * @return the index
+     *
+     * @throws SchemaProblem if the structure of the source is broken or a type or the schema is defined twice
+     */
+    static DefinitionIndex scan(ByteBuffer source, String sourceName) throws SchemaProblem {
+        DefinitionIndex index = new DefinitionIndex(source, sourceName);
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        Scanner scanner = index.new Scanner();
+        scanner.next();
+        while (scanner.kind != Scanner.EOF) {
+            Entry entry = scanner.definition();
+            if (entry != null) {
+                index.add(entry, errors);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+        return index;
+    }
+
+    private void add(Entry entry, List<GraphQLError> errors) {
+        if (entry.kind == EXTENSION) {
+            List<Entry> entries = extensions.get(entry.name);
+            if (entries == null) {
+                entries = new ArrayList<Entry>();
+                extensions.put(entry.name, entries);
+            }
+            entries.add(entry);
+            addImplementations(entry);
+        } else if (entry.kind == SCHEMA) {
+            if (schema != null) {
+                errors.add(new SchemaRedefinitionError((SchemaDefinition) definition(schema), (SchemaDefinition) definition(entry)));
+            } else {
+                schema = entry;
+            }
+        } else {
+            Map<String, Entry> entries = entry.kind == SCALAR ? scalars : types;
+            Entry olderEntry = entries.get(entry.name);
+            if (olderEntry != null) {
+                errors.add(new TypeRedefinitionError((TypeDefinition) definition(entry), (TypeDefinition) definition(olderEntry)));
+            } else {
+                entries.put(entry.name, entry);
+                addImplementations(entry);
+            }
+        }
+    }
+
+    private void addImplementations(Entry entry) {
+        for (String interfaceName : entry.interfaceNames) {
+            Set<String> implementationNames = implementations.get(interfaceName);
+            if (implementationNames == null) {
+                implementationNames = new LinkedHashSet<String>();
+                implementations.put(interfaceName, implementationNames);
+            }
+            implementationNames.add(entry.name);
+        }
+    }
+
+    boolean contains(String name) {
+        return types.containsKey(name) || scalars.containsKey(name) || extensions.containsKey(name);
+    }
+
+    TypeDefinition type(String name) {
+        Entry entry = types.get(name);
+        return entry == null ? null : (TypeDefinition) definition(entry);
+    }
+
+    ScalarTypeDefinition scalar(String name) {
+        Entry entry = scalars.get(name);
+        return entry == null ? null : (ScalarTypeDefinition) definition(entry);
+    }
+
+    SchemaDefinition schemaDefinition() {
+        return schema == null ? null : (SchemaDefinition) definition(schema);
+    }
+
+    /**
+     * @return the type extensions of the named type, parsing any not yet parsed
+     */
+    List<TypeExtensionDefinition> typeExtensions(String name) {
+        List<Entry> entries = extensions.get(name);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        List<TypeExtensionDefinition> definitions = new ArrayList<TypeExtensionDefinition>(entries.size());
+        for (Entry entry : entries) {
+            definitions.add((TypeExtensionDefinition) definition(entry));
+        }
+        return definitions;
+    }
+
+    /**
+     * @return the names of the object types that implement the named interface, directly or through a type
+     * extension, without parsing anything
+     */
+    Set<String> implementations(String interfaceName) {
+        Set<String> implementationNames = implementations.get(interfaceName);
+        return implementationNames == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(implementationNames);
+    }
+
+    Set<String> typeNames() {
+        return Collections.unmodifiableSet(types.keySet());
+    }
+
+    Set<String> scalarNames() {
+        return Collections.unmodifiableSet(scalars.keySet());
+    }
+
+    Set<String> extendedTypeNames() {
+        return Collections.unmodifiableSet(extensions.keySet());
+    }
+
+    /**
+     * @return every type, parsing any not yet parsed
+     */
+    Map<String, TypeDefinition> types() {
+        Map<String, TypeDefinition> typeDefinitions = new LinkedHashMap<String, TypeDefinition>();
+        for (Entry entry : types.values()) {
+            typeDefinitions.put(entry.name, (TypeDefinition) definition(entry));
+        }
+        return typeDefinitions;
+    }
+
+    /**
+     * @return every scalar, parsing any not yet parsed
+     */
+    Map<String, ScalarTypeDefinition> scalars() {
+        Map<String, ScalarTypeDefinition> scalarDefinitions = new LinkedHashMap<String, ScalarTypeDefinition>();
+        for (Entry entry : scalars.values()) {
+            scalarDefinitions.put(entry.name, (ScalarTypeDefinition) definition(entry));
+        }
+        return scalarDefinitions;
+    }
+
+    /**
+     * @return every type extension, parsing any not yet parsed
+     */
+    Map<String, List<TypeExtensionDefinition>> typeExtensions() {
+        Map<String, List<TypeExtensionDefinition>> typeExtensions = new LinkedHashMap<String, List<TypeExtensionDefinition>>();
+        for (Map.Entry<String, List<Entry>> entries : extensions.entrySet()) {
+            List<TypeExtensionDefinition> definitions = new ArrayList<TypeExtensionDefinition>(entries.getValue().size());
+            for (Entry entry : entries.getValue()) {
+                definitions.add((TypeExtensionDefinition) definition(entry));
+            }
+            typeExtensions.put(entries.getKey(), definitions);
+        }
+        return typeExtensions;
+    }
+
+    private Definition definition(Entry entry) {
+        synchronized (entry) {
+            if (entry.definition == null) {
+                entry.definition = parse(entry);
+            }
+            return entry.definition;
+        }
+    }
+
+    private Definition parse(Entry entry) {
+        ByteBuffer range = source.duplicate();
+        range.limit(entry.end);
+        range.position(entry.start);
+        TypeDefinitionRegistry typeRegistry;
+        try {
+            typeRegistry = new SdlParser(new ByteBufferReader(range, UTF_8.newDecoder()), sourceName, entry.line, entry.column).parse();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        switch (entry.kind) {
+            case SCALAR:
+                return typeRegistry.scalars().get(entry.name);
+            case EXTENSION:
+                return typeRegistry.typeExtensions().get(entry.name).get(0);
+            case SCHEMA:
+                return typeRegistry.schemaDefinition();
+            default:
+                return typeRegistry.getType(entry.name);
+        }
+    }
+
+    /**
+     * Where a definition is in the source
+     */
+    private static class Entry {
+        private final int kind;
+        private final String name;
+        private final int start;
+        private final int end;
+        private final int line;
+        private final int column;
+        private final List<String> interfaceNames;
+        private Definition definition;
+
+        Entry(int kind, String name, int start, int end, int line, int column, List<String> interfaceNames) {
+            this.kind = kind;
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.line = line;
+            this.column = column;
+            this.interfaceNames = interfaceNames;
+        }
+    }
+
+    /**
+     * Reads the tokens of the source straight from its bytes.  Everything that matters to the structure is ASCII, so
+     * multi byte characters only ever need to be counted for the column.  Bracketed groups are skipped over whole
+     * and their content is left for the parser to check.
+     */
+    private class Scanner {
+        private static final int EOF = 0;
+        private static final int NAME = 1;
+        private static final int VALUE = 2;
+        private static final int PUNCTUATOR = 3;
+
+        private int pos = source.position();
+        private final int limit = source.limit();
+        private int line = 1;
+        private int column;
+
+        private int kind;
+        private int tokenStart;
+        private int tokenEnd;
+        private int tokenLine;
+        private int tokenColumn;
+        private int previousEnd;
+
+        /**
+         * Reads a definition starting at the current token
+         *
+         * @return the entry of the definition or null if it is one the registry does not keep
+         */
+        Entry definition() {
+            int start = tokenStart;
+            int startLine = tokenLine;
+            int startColumn = tokenColumn;
+            int entryKind;
+            String name = null;
+            List<String> interfaceNames = Collections.emptyList();
+            if (isName("schema")) {
+                next();
+                entryKind = SCHEMA;
+                skipBody();
+            } else if (isName("extend")) {
+                next();
+                if (!isName("type")) {
+                    throw unexpected("'type'");
+                }
+                next();
+                entryKind = EXTENSION;
+                name = name();
+                interfaceNames = interfaceNames();
+                skipBody();
+            } else if (isName("type")) {
+                next();
+                entryKind = TYPE;
+                name = name();
+                interfaceNames = interfaceNames();
+                skipBody();
+            } else if (isName("interface") || isName("enum") || isName("input")) {
+                next();
+                entryKind = TYPE;
+                name = name();
+                skipBody();
+            } else if (isName("scalar")) {
+                next();
+                entryKind = SCALAR;
+                name = name();
+                skipDirectives();
+            } else if (isName("union")) {
+                next();
+                entryKind = TYPE;
+                name = name();
+                skipDirectives();
+                expect('=');
+                skipNames();
+            } else if (isName("directive")) {
+                next();
+                expect('@');
+                name();
+                if (isPunctuator('(')) {
+                    skipGroup();
+                }
+                if (!isName("on")) {
+                    throw unexpected("'on'");
+                }
+                next();
+                skipNames();
+                // the registry keeps no directive definitions
+                return null;
+            } else {
+                throw unexpected("a schema definition");
+            }
+            return new Entry(entryKind, name, start, previousEnd, startLine, startColumn, interfaceNames);
+        }
+
+        // the names after implements, up to the directives or the body
+        private List<String> interfaceNames() {
+            if (!isName("implements")) {
+                return Collections.emptyList();
+            }
+            next();
+            List<String> names = new ArrayList<String>();
+            while (kind == NAME) {
+                names.add(name());
+            }
+            return names;
+        }
+
+        private String name() {
+            if (kind != NAME) {
+                throw unexpected("a name");
+            }
+            String name = new String(bytes(), UTF_8);
+            next();
+            return name;
+        }
+
+        // everything up to and including the braced body
+        private void skipBody() {
+            while (!isPunctuator('{')) {
+                if (kind == EOF) {
+                    throw unexpected("'{'");
+                }
+                if (isPunctuator('(') || isPunctuator('[')) {
+                    skipGroup();
+                } else {
+                    next();
+                }
+            }
+            skipGroup();
+        }
+
+        private void skipDirectives() {
+            while (isPunctuator('@')) {
+                next();
+                name();
+                if (isPunctuator('(')) {
+                    skipGroup();
+                }
+            }
+        }
+
+        private void skipNames() {
+            name();
+            while (isPunctuator('|')) {
+                next();
+                name();
+            }
+        }
+
+        private void skipGroup() {
+            int depth = 0;
+            do {
+                if (kind == EOF) {
+                    throw unexpected("a closing bracket");
+                }
+                if (isPunctuator('(') || isPunctuator('[') || isPunctuator('{')) {
+                    depth++;
+                } else if (isPunctuator(')') || isPunctuator(']') || isPunctuator('}')) {
+                    depth--;
+                }
+                next();
+            } while (depth > 0);
+        }
+
+        private void expect(char c) {
+            if (!isPunctuator(c)) {
+                throw unexpected("'" + c + "'");
+            }
+            next();
+        }
+
+        private boolean isPunctuator(char c) {
+            return kind == PUNCTUATOR && source.get(tokenStart) == c;
+        }
+
+        private boolean isName(String name) {
+            if (kind != NAME || tokenEnd - tokenStart != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (source.get(tokenStart + i) != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void next() {
+            previousEnd = tokenEnd;
+            skipIgnored();
+            tokenStart = pos;
+            tokenLine = line;
+            tokenColumn = column + 1;
+            if (pos == limit) {
+                kind = EOF;
+            } else {
+                int c = source.get(pos);
+                if (c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                    kind = NAME;
+                    while (pos < limit && isNameByte(source.get(pos))) {
+                        advance();
+                    }
+                } else if (c == '-' || (c >= '0' && c <= '9')) {
+                    kind = VALUE;
+                    advance();
+                    while (pos < limit && isNumberByte(source.get(pos))) {
+                        advance();
+                    }
+                } else if (c == '"') {
+                    kind = VALUE;
+                    skipString();
+                } else if (c == '.') {
+                    kind = PUNCTUATOR;
+                    for (int i = 0; i < 3; i++) {
+                        if (pos == limit || source.get(pos) != '.') {
+                            throw syntaxError("expected '...'");
+                        }
+                        advance();
+                    }
+                } else if ("!$():=@[]{}|".indexOf(c) != -1) {
+                    kind = PUNCTUATOR;
+                    advance();
+                } else {
+                    throw syntaxError(String.format("unexpected character '%s'", (char) c));
+                }
+            }
+            tokenEnd = pos;
+        }
+
+        private void skipIgnored() {
+            while (pos < limit) {
+                int c = source.get(pos);
+                if (c == ' ' || c == '\t' || c == ',' || c == '\n' || c == '\r') {
+                    advance();
+                } else if (c == (byte) 0xEF && pos + 2 < limit && source.get(pos + 1) == (byte) 0xBB && source.get(pos + 2) == (byte) 0xBF) {
+                    // a byte order mark
+                    advance();
+                    advance();
+                    advance();
+                } else if (c == '#') {
+                    while (pos < limit && source.get(pos) != '\n' && source.get(pos) != '\r') {
+                        advance();
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void skipString() {
+            advance();
+            while (true) {
+                if (pos == limit || source.get(pos) == '\n' || source.get(pos) == '\r') {
+                    throw syntaxError("unterminated string");
+                }
+                byte b = source.get(pos);
+                advance();
+                if (b == '"') {
+                    return;
+                }
+                if (b == '\\' && pos < limit) {
+                    advance();
+                }
+            }
+        }
+
+        private boolean isNameByte(byte b) {
+            return b == '_' || (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9');
+        }
+
+        private boolean isNumberByte(byte b) {
+            return (b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+        }
+
+        // columns count characters as the parsers do, so a four byte sequence is a surrogate pair of two
+        private void advance() {
+            byte b = source.get(pos++);
+            if (b == '\n') {
+                line++;
+                column = 0;
+            } else if ((b & 0xC0) != 0x80) {
+                column += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+
+        private SchemaProblem unexpected(String expected) {
+            String found = kind == EOF ? "the end of the input" : "'" + new String(bytes(), UTF_8) + "'";
+            return syntaxError(String.format("expected %s but found %s", expected, found));
+        }
+
+        private byte[] bytes() {
+            byte[] bytes = new byte[tokenEnd - tokenStart];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = source.get(tokenStart + i);
+            }
+            return bytes;
+        }
+
+        private SchemaProblem syntaxError(String problem) {
+            SourceLocation location = sourceName == null ? new SourceLocation(tokenLine, tokenColumn) : new NamedSourceLocation(tokenLine, tokenColumn, sourceName);
+            return new SchemaProblem(Collections.<GraphQLError>singletonList(new SchemaSyntaxError(location, problem)));
+        }
+    }
+}
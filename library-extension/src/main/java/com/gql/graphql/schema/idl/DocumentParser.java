@@ -0,0 +1,221 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.InvalidSyntaxError;
+import graphql.language.AbstractNode;
+import graphql.language.Document;
+import graphql.language.Node;
+import graphql.language.SourceLocation;
+import graphql.parser.GraphqlAntlrToLanguage;
+import graphql.parser.antlr.GraphqlLexer;
+import graphql.parser.antlr.GraphqlParser;
+import com.gql.graphql.language.NamedSourceLocation;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.util.Collections;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * This drives the graphql-java ANTLR grammar the same way {@link graphql.parser.Parser} does, but it can be fed from any
+ * {@link CharStream} and not just a fully materialised String.  When reading from a {@link Reader} the characters are
+ * pulled through a small sliding window so the source text is never held on the heap as a whole.
+ *
+ * Each thread keeps its own lexer and parser which are pointed at new input on every parse.  Parsing is tried in the
+ * fast SLL prediction mode first and only documents that fail there are re-parsed in full LL mode, so a syntax
+ * error is only reported once LL agrees.  The prediction caches of the generated parser are static, so once
+ * {@link SchemaParser#warmUp()} has run every thread parses at close to steady state speed.
+ *
+ * The lexer and parser of a thread live as long as the thread does, unless {@link #clearThreadCaches()} is called on
+ * it.
+ */
+class DocumentParser {
+
+    private static final int STREAM_BUFFER_SIZE = 1024 * 8;
+
+    private static final CommonTokenFactory COPY_TEXT_TOKEN_FACTORY = new CommonTokenFactory(true);
+
+    private static final ThreadLocal<Recognizers> RECOGNIZERS = new ThreadLocal<Recognizers>() {
+        @Override
+        protected Recognizers initialValue() {
+            return new Recognizers();
+        }
+    };
+
+    // graphql-java 2.4 keeps the built document in a package private field
+    private static final Field RESULT_FIELD = resultField();
+
+    /**
+     * Drops the lexer and parser the calling thread keeps, see {@link SchemaParser#clearThreadCaches()}
+     */
+    static void clearThreadCaches() {
+        RECOGNIZERS.remove();
+    }
+
+    /**
+     * Parses a string of graphql into a document
+     *
+     * @param input the graphql text
+     *
+     * @return the parsed document
+     *
+     * @throws SchemaProblem if the text is not syntactically valid
+     */
+    Document parseDocument(String input) throws SchemaProblem {
+        return parseDocument(new ANTLRInputStream(input), false, null);
+    }
+
+    /**
+     * Parses graphql read from a reader into a document.  The reader is consumed but not closed.
+     *
+     * @param reader the reader of graphql text
+     *
+     * @return the parsed document
+     *
+     * @throws SchemaProblem if the text is not syntactically valid
+     */
+    Document parseDocument(Reader reader) throws SchemaProblem {
+        return parseDocument(reader, null);
+    }
+
+    /**
+     * Parses graphql read from a reader into a document.  The reader is consumed but not closed.
+     *
+     * @param reader     the reader of graphql text
+     * @param sourceName the name of the source, say a file name, which will be recorded in every source location
+     *                   of the document.  Can be null
+     *
+     * @return the parsed document
+     *
+     * @throws SchemaProblem if the text is not syntactically valid
+     */
+    Document parseDocument(Reader reader, String sourceName) throws SchemaProblem {
+        // the char stream pulls a character at a time so make sure that is served from a buffer
+        Reader input = reader instanceof BufferedReader || reader instanceof ByteBufferReader ? reader : new BufferedReader(reader, STREAM_BUFFER_SIZE);
+        return parseDocument(new UnbufferedCharStream(input, STREAM_BUFFER_SIZE), true, sourceName);
+    }
+
+    private Document parseDocument(CharStream charStream, boolean unbuffered, String sourceName) throws SchemaProblem {
+        Recognizers recognizers = RECOGNIZERS.get();
+        GraphqlLexer lexer = recognizers.lexer;
+        GraphqlParser parser = recognizers.parser;
+        GraphqlParser.DocumentContext documentContext;
+        try {
+            lexer.setInputStream(charStream);
+            // the char stream forgets characters once consumed so tokens must take a copy of their text
+            lexer.setTokenFactory(unbuffered ? COPY_TEXT_TOKEN_FACTORY : CommonTokenFactory.DEFAULT);
+            CommonTokenStream tokens = new CommonTokenStream(lexer);
+
+            parser.setTokenStream(tokens);
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            try {
+                documentContext = parser.document();
+            } catch (ParseCancellationException e) {
+                // SLL can fail on input that full LL accepts.  Resetting rewinds the token stream, which keeps
+                // every token read so far, so this works even when the char stream cannot be rewound.
+                parser.reset();
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                try {
+                    documentContext = parser.document();
+                } catch (ParseCancellationException llException) {
+                    throw handleParseException(llException, sourceName);
+                }
+            }
+        } finally {
+            recognizers.release();
+        }
+
+        GraphqlAntlrToLanguage antlrToLanguage = new GraphqlAntlrToLanguage();
+        antlrToLanguage.visitDocument(documentContext);
+        Document document = result(antlrToLanguage);
+        if (sourceName != null) {
+            nameSourceLocations(document, sourceName);
+        }
+        return document;
+    }
+
+    private SchemaProblem handleParseException(ParseCancellationException e, String sourceName) {
+        SourceLocation sourceLocation = null;
+        if (e.getCause() instanceof RecognitionException) {
+            Token offendingToken = ((RecognitionException) e.getCause()).getOffendingToken();
+            if (offendingToken != null) {
+                // antlr counts columns from 0 while the nodes, as graphql-java builds them, count from 1
+                int column = offendingToken.getCharPositionInLine() + 1;
+                sourceLocation = sourceName == null
+                        ? new SourceLocation(offendingToken.getLine(), column)
+                        : new NamedSourceLocation(offendingToken.getLine(), column, sourceName);
+            }
+        }
+        InvalidSyntaxError invalidSyntaxError = sourceLocation == null
+                ? new InvalidSyntaxError(Collections.<SourceLocation>emptyList())
+                : new InvalidSyntaxError(sourceLocation);
+        return new SchemaProblem(Collections.<GraphQLError>singletonList(invalidSyntaxError));
+    }
+
+    // the antlr visitor has no notion of source names so we stamp them on afterwards
+    private void nameSourceLocations(Node node, String sourceName) {
+        SourceLocation sourceLocation = node.getSourceLocation();
+        if (sourceLocation != null && node instanceof AbstractNode) {
+            ((AbstractNode) node).setSourceLocation(new NamedSourceLocation(sourceLocation.getLine(), sourceLocation.getColumn(), sourceName));
+        }
+        for (Node child : node.getChildren()) {
+            // some nodes list absent values such as default values as null children
+            if (child != null) {
+                nameSourceLocations(child, sourceName);
+            }
+        }
+    }
+
+    /**
+     * A lexer and parser kept for reuse by a single thread
+     */
+    private static class Recognizers {
+        private final GraphqlLexer lexer = new GraphqlLexer(emptyInput());
+        private final GraphqlParser parser = new GraphqlParser(new CommonTokenStream(lexer));
+
+        Recognizers() {
+            parser.removeErrorListeners();
+            parser.setErrorHandler(new BailErrorStrategy());
+        }
+
+        // drop the last input so an idle thread does not keep its tokens alive
+        void release() {
+            lexer.setInputStream(emptyInput());
+            parser.setTokenStream(new CommonTokenStream(lexer));
+        }
+
+        private static CharStream emptyInput() {
+            return new ANTLRInputStream("");
+        }
+    }
+
+    private static Document result(GraphqlAntlrToLanguage antlrToLanguage) {
+        try {
+            return (Document) RESULT_FIELD.get(antlrToLanguage);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Field resultField() {
+        try {
+            Field field = GraphqlAntlrToLanguage.class.getDeclaredField("result");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Unsupported graphql-java version, cannot find the parsed document", e);
+        }
+    }
+}
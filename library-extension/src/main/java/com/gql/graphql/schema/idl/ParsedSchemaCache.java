@@ -0,0 +1,241 @@
+package com.gql.graphql.schema.idl;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of parsed schema definitions keyed by a SHA-256 digest of the schema text.  When plugged into a
+ * {@link SchemaParser} via {@link SchemaParserOptions} re-parsing text that has been seen before costs a hash
+ * rather than a parse.
+ *
+ * The cache holds {@link TypeDefinitionRegistry#freeze() frozen} registries and every hit hands out the very registry
+ * it holds, as a frozen registry can be shared.  A caller that wants to add to it merges it into a new registry.
+ * Entries are evicted least recently used
+ * first once either the entry count or the total weight, the length of the cached schema text, goes over its limit.
+ */
+public class ParsedSchemaCache {
+
+    private static final int DIGEST_BUFFER_SIZE = 1024 * 4;
+
+    private final long maximumSize;
+    private final long maximumWeight;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private ParsedSchemaCache(long maximumSize, long maximumWeight) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * @return a builder of parsed schema caches
+     */
+    public static Builder newCache() {
+        return new Builder();
+    }
+
+    Key keyOf(String schemaInput) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        int length = schemaInput.length();
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = schemaInput.charAt(i);
+            buffer[pos++] = (byte) (c >>> 8);
+            buffer[pos++] = (byte) c;
+            if (pos == buffer.length) {
+                digest.update(buffer, 0, pos);
+                pos = 0;
+            }
+        }
+        digest.update(buffer, 0, pos);
+        return new Key(digest.digest(), length);
+    }
+
+    TypeDefinitionRegistry get(Key key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        return entry.typeRegistry;
+    }
+
+    /**
+     * Caches the parsed registry frozen and hands back the frozen registry for the caller to use
+     */
+    TypeDefinitionRegistry put(Key key, TypeDefinitionRegistry typeRegistry) {
+        typeRegistry = typeRegistry.freeze();
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(typeRegistry, key.length));
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += key.length;
+            evict();
+        }
+        return typeRegistry;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maximumSize || weight > maximumWeight) && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            weight -= eldest.weight;
+            evictionCount++;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Removes every entry from the cache.  The counters are left as they are.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the number of schemas in the cache
+     */
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total weight, the summed length of the schema text, of the schemas in the cache
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * @return how many times a schema was found in the cache
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return how many times a schema was not found in the cache and so had to be parsed
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return how many schemas have been evicted to keep the cache within its limits
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ParsedSchemaCache{" +
+                "size=" + entries.size() +
+                ", weight=" + weight +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+
+    static class Key {
+        private final byte[] digest;
+        private final int length;
+        private final int hashCode;
+
+        Key(byte[] digest, int length) {
+            this.digest = digest;
+            this.length = length;
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            return length == that.length && Arrays.equals(digest, that.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Entry {
+        private final TypeDefinitionRegistry typeRegistry;
+        private final long weight;
+
+        Entry(TypeDefinitionRegistry typeRegistry, long weight) {
+            this.typeRegistry = typeRegistry;
+            this.weight = weight;
+        }
+    }
+
+    public static class Builder {
+        private long maximumSize = 1000;
+        private long maximumWeight = Long.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maximumSize the most schemas the cache will hold
+         *
+         * @return this builder
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("The maximum size must not be negative");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight the most schema text, in characters, the cache will hold the parsed form of
+         *
+         * @return this builder
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("The maximum weight must not be negative");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @return the built cache
+         */
+        public ParsedSchemaCache build() {
+            return new ParsedSchemaCache(maximumSize, maximumWeight);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.gql.graphql.schema.idl;
+
+import java.util.Map;
+
+/**
+ * An immutable hash array mapped trie.  A put returns a new map that shares every node off the path to the changed
+ * entry with the map it was made from, so a change costs a handful of small arrays however big the map is, and
+ * many maps made from the same base cost little more memory than the base itself.
+ *
+ * Keys and values must not be null.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        return root == null ? null : (V) root.get(key, hash(key), 0);
+    }
+
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return a map with the key mapped to the value, which is this map if it already was
+     */
+    PersistentHashMap<K, V> put(K key, V value) {
+        int hash = hash(key);
+        if (root == null) {
+            return new PersistentHashMap<K, V>(new Leaf(key, hash, value), 1);
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(key, hash, value, 0, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<K, V>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Puts every entry of this map into the given one, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    void putAllInto(Map<K, V> target) {
+        if (root != null) {
+            root.putAllInto((Map<Object, Object>) target);
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        // spread the bits like HashMap does so keys that only differ high up still branch early
+        return h ^ (h >>> 16);
+    }
+
+    private abstract static class Node {
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node put(Object key, int hash, Object value, int shift, boolean[] added);
+
+        abstract void putAllInto(Map<Object, Object> target);
+    }
+
+    private static final class Leaf extends Node {
+        private final Object key;
+        private final int hash;
+        private final Object value;
+
+        Leaf(Object key, int hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            return this.hash == hash && this.key.equals(key) ? value : null;
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift, boolean[] added) {
+            if (this.hash == hash) {
+                if (this.key.equals(key)) {
+                    return this.value == value ? this : new Leaf(key, hash, value);
+                }
+                added[0] = true;
+                return new Collision(hash, new Leaf[]{this, new Leaf(key, hash, value)});
+            }
+            added[0] = true;
+            return Branch.of(shift, this, new Leaf(key, hash, value));
+        }
+
+        @Override
+        void putAllInto(Map<Object, Object> target) {
+            target.put(key, value);
+        }
+    }
+
+    /**
+     * The leaves of keys whose hashes are entirely equal
+     */
+    private static final class Collision extends Node {
+        private final int hash;
+        private final Leaf[] leaves;
+
+        Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            if (this.hash == hash) {
+                for (Leaf leaf : leaves) {
+                    if (leaf.key.equals(key)) {
+                        return leaf.value;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift, boolean[] added) {
+            if (this.hash != hash) {
+                added[0] = true;
+                return Branch.of(shift, this, new Leaf(key, hash, value));
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (leaves[i].value == value) {
+                        return this;
+                    }
+                    Leaf[] newLeaves = leaves.clone();
+                    newLeaves[i] = new Leaf(key, hash, value);
+                    return new Collision(hash, newLeaves);
+                }
+            }
+            Leaf[] newLeaves = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+            newLeaves[leaves.length] = new Leaf(key, hash, value);
+            added[0] = true;
+            return new Collision(hash, newLeaves);
+        }
+
+        @Override
+        void putAllInto(Map<Object, Object> target) {
+            for (Leaf leaf : leaves) {
+                target.put(leaf.key, leaf.value);
+            }
+        }
+    }
+
+    /**
+     * A node of up to 32 children, one for each value of the next five bits of the hash, stored compactly with a
+     * bitmap of which are present
+     */
+    private static final class Branch extends Node {
+        private final int bitmap;
+        private final Node[] children;
+
+        Branch(int bitmap, Node[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        /**
+         * A branch holding two nodes whose hashes differ
+         */
+        static Node of(int shift, Node a, Node b) {
+            int hashA = hashOf(a);
+            int hashB = hashOf(b);
+            int bitA = bit(hashA, shift);
+            int bitB = bit(hashB, shift);
+            if (bitA == bitB) {
+                return new Branch(bitA, new Node[]{of(shift + BITS, a, b)});
+            }
+            // children are kept in the order of their bit positions, compared as positions since bit 31 is negative
+            boolean aFirst = ((hashA >>> shift) & MASK) < ((hashB >>> shift) & MASK);
+            return new Branch(bitA | bitB, aFirst ? new Node[]{a, b} : new Node[]{b, a});
+        }
+
+        private static int hashOf(Node node) {
+            return node instanceof Leaf ? ((Leaf) node).hash : ((Collision) node).hash;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            return children[index(bit)].get(key, hash, shift + BITS);
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift, boolean[] added) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newChildren[index] = new Leaf(key, hash, value);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                added[0] = true;
+                return new Branch(bitmap | bit, newChildren);
+            }
+            Node child = children[index];
+            Node newChild = child.put(key, hash, value, shift + BITS, added);
+            if (newChild == child) {
+                return this;
+            }
+            Node[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return new Branch(bitmap, newChildren);
+        }
+
+        @Override
+        void putAllInto(Map<Object, Object> target) {
+            for (Node child : children) {
+                child.putAllInto(target);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.Definition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import graphql.language.TypeName;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+import com.gql.graphql.schema.idl.errors.SchemaRedefinitionError;
+import com.gql.graphql.schema.idl.errors.TypeRedefinitionError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A registry of type definitions that can be forked in constant time.  The definitions are held in persistent hash
+ * tries, so a fork shares every definition with the registry it came from and a change to either only copies the
+ * few trie nodes on the way to the changed definition.
+ *
+ * This suits a shared base schema that is specialised many times over, for example per tenant: parse the base once,
+ * then {@link #fork()} it for each tenant and {@link #add(Definition)} or {@link #merge(TypeDefinitionRegistry)} the
+ * tenant's own types and type extensions.  Memory then grows with the size of the overlays rather than with the
+ * number of tenants times the size of the base.  Use {@link #toTypeDefinitionRegistry()} to generate a schema.
+ *
+ * Redefinitions are reported exactly as {@link TypeDefinitionRegistry} reports them.  A registry may be read from
+ * many threads but only changed from one at a time, its forks however are independent of each other.
+ */
+public class PersistentTypeDefinitionRegistry {
+
+    private PersistentHashMap<String, Ordered<TypeDefinition>> types;
+    private PersistentHashMap<String, Ordered<ScalarTypeDefinition>> scalarTypes;
+    private PersistentHashMap<String, Ordered<List<TypeExtensionDefinition>>> typeExtensions;
+    private SchemaDefinition schema;
+    // keeps the order definitions were added in, which the maps handed out follow
+    private long sequence;
+
+    public PersistentTypeDefinitionRegistry() {
+        this.types = PersistentHashMap.empty();
+        this.scalarTypes = PersistentHashMap.empty();
+        this.typeExtensions = PersistentHashMap.empty();
+    }
+
+    /**
+     * @param typeRegistry the definitions to start with
+     */
+    public PersistentTypeDefinitionRegistry(TypeDefinitionRegistry typeRegistry) {
+        this();
+        merge(typeRegistry);
+    }
+
+    private PersistentTypeDefinitionRegistry(PersistentTypeDefinitionRegistry base) {
+        this.types = base.types;
+        this.scalarTypes = base.scalarTypes;
+        this.typeExtensions = base.typeExtensions;
+        this.schema = base.schema;
+        this.sequence = base.sequence;
+    }
+
+    /**
+     * Forks this registry in constant time.  The fork starts out with all the definitions of this registry and
+     * from then on changes to either one are not seen by the other.
+     *
+     * @return the fork
+     */
+    public PersistentTypeDefinitionRegistry fork() {
+        return new PersistentTypeDefinitionRegistry(this);
+    }
+
+    /**
+     * Adds a definition to the registry
+     *
+     * @param definition the definition to add
+     *
+     * @return an error if the definition redefines one already here, in which case nothing is added, otherwise null
+     */
+    public GraphQLError add(Definition definition) {
+        if (definition instanceof TypeExtensionDefinition) {
+            addExtension((TypeExtensionDefinition) definition);
+        } else if (definition instanceof ScalarTypeDefinition) {
+            ScalarTypeDefinition newEntry = (ScalarTypeDefinition) definition;
+            Ordered<ScalarTypeDefinition> olderEntry = scalarTypes.get(newEntry.getName());
+            if (olderEntry != null) {
+                return new TypeRedefinitionError(newEntry, olderEntry.value);
+            }
+            scalarTypes = scalarTypes.put(newEntry.getName(), new Ordered<ScalarTypeDefinition>(sequence++, newEntry));
+        } else if (definition instanceof TypeDefinition) {
+            TypeDefinition newEntry = (TypeDefinition) definition;
+            Ordered<TypeDefinition> olderEntry = types.get(newEntry.getName());
+            if (olderEntry != null) {
+                return new TypeRedefinitionError(newEntry, olderEntry.value);
+            }
+            types = types.put(newEntry.getName(), new Ordered<TypeDefinition>(sequence++, newEntry));
+        } else if (definition instanceof SchemaDefinition) {
+            SchemaDefinition newSchema = (SchemaDefinition) definition;
+            if (schema != null) {
+                return new SchemaRedefinitionError(schema, newSchema);
+            }
+            schema = newSchema;
+        }
+        return null;
+    }
+
+    private void addExtension(TypeExtensionDefinition newEntry) {
+        Ordered<List<TypeExtensionDefinition>> currentEntry = typeExtensions.get(newEntry.getName());
+        List<TypeExtensionDefinition> extensions = new ArrayList<TypeExtensionDefinition>();
+        long order;
+        if (currentEntry != null) {
+            extensions.addAll(currentEntry.value);
+            order = currentEntry.order;
+        } else {
+            order = sequence++;
+        }
+        extensions.add(newEntry);
+        typeExtensions = typeExtensions.put(newEntry.getName(), new Ordered<List<TypeExtensionDefinition>>(order, Collections.unmodifiableList(extensions)));
+    }
+
+    /**
+     * Merges a registry into this one.  Either all of its definitions are added or, if any of them is a
+     * redefinition, none are.
+     *
+     * @param typeRegistry the registry to be merged into this one
+     *
+     * @return this registry
+     *
+     * @throws SchemaProblem if there are problems merging the types such as redefinitions
+     */
+    public PersistentTypeDefinitionRegistry merge(TypeDefinitionRegistry typeRegistry) throws SchemaProblem {
+        Map<String, TypeDefinition> newTypes = typeRegistry.types();
+        Map<String, ScalarTypeDefinition> newScalarTypes = typeRegistry.customScalars();
+        SchemaDefinition newSchema = typeRegistry.schemaDefinition();
+
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        for (TypeDefinition newEntry : newTypes.values()) {
+            Ordered<TypeDefinition> olderEntry = types.get(newEntry.getName());
+            if (olderEntry != null) {
+                errors.add(new TypeRedefinitionError(newEntry, olderEntry.value));
+            }
+        }
+        for (ScalarTypeDefinition newEntry : newScalarTypes.values()) {
+            Ordered<ScalarTypeDefinition> olderEntry = scalarTypes.get(newEntry.getName());
+            if (olderEntry != null) {
+                errors.add(new TypeRedefinitionError(newEntry, olderEntry.value));
+            }
+        }
+        if (newSchema != null && schema != null) {
+            errors.add(new SchemaRedefinitionError(schema, newSchema));
+        }
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+
+        for (TypeDefinition newEntry : newTypes.values()) {
+            add(newEntry);
+        }
+        for (ScalarTypeDefinition newEntry : newScalarTypes.values()) {
+            add(newEntry);
+        }
+        if (newSchema != null) {
+            schema = newSchema;
+        }
+        for (List<TypeExtensionDefinition> extensions : typeRegistry.typeExtensions().values()) {
+            for (TypeExtensionDefinition extension : extensions) {
+                addExtension(extension);
+            }
+        }
+        return this;
+    }
+
+    public boolean hasType(TypeName typeName) {
+        String name = typeName.getName();
+        return types.containsKey(name) || ScalarInfo.STANDARD_SCALAR_DEFINITIONS.containsKey(name) || scalarTypes.containsKey(name) || typeExtensions.containsKey(name);
+    }
+
+    public TypeDefinition getType(Type type) {
+        return getType(TypeInfo.typeInfo(type).getName());
+    }
+
+    public TypeDefinition getType(String typeName) {
+        Ordered<TypeDefinition> type = types.get(typeName);
+        if (type != null) {
+            return type.value;
+        }
+        Ordered<ScalarTypeDefinition> scalarType = scalarTypes.get(typeName);
+        if (scalarType != null) {
+            return scalarType.value;
+        }
+        return ScalarInfo.STANDARD_SCALAR_DEFINITIONS.get(typeName);
+    }
+
+    public SchemaDefinition schemaDefinition() {
+        return schema;
+    }
+
+    /**
+     * @return the types in the order they were added
+     */
+    public Map<String, TypeDefinition> types() {
+        return inOrder(types);
+    }
+
+    /**
+     * @return the standard scalars followed by the custom ones in the order they were added
+     */
+    public Map<String, ScalarTypeDefinition> scalars() {
+        Map<String, ScalarTypeDefinition> scalars = new LinkedHashMap<String, ScalarTypeDefinition>(ScalarInfo.STANDARD_SCALAR_DEFINITIONS);
+        scalars.putAll(inOrder(scalarTypes));
+        return scalars;
+    }
+
+    /**
+     * @return the type extensions by the type they extend, in the order they were added
+     */
+    public Map<String, List<TypeExtensionDefinition>> typeExtensions() {
+        return inOrder(typeExtensions);
+    }
+
+    /**
+     * Copies the definitions into a frozen {@link TypeDefinitionRegistry}, say to generate a schema from
+     *
+     * @return a frozen registry of the definitions
+     */
+    public TypeDefinitionRegistry toTypeDefinitionRegistry() {
+        TypeDefinitionRegistry typeRegistry = new TypeDefinitionRegistry();
+        if (schema != null) {
+            typeRegistry.add(schema);
+        }
+        for (TypeDefinition typeDefinition : types().values()) {
+            typeRegistry.add(typeDefinition);
+        }
+        for (ScalarTypeDefinition scalarTypeDefinition : inOrder(scalarTypes).values()) {
+            typeRegistry.add(scalarTypeDefinition);
+        }
+        for (List<TypeExtensionDefinition> extensions : typeExtensions().values()) {
+            for (TypeExtensionDefinition extension : extensions) {
+                typeRegistry.add(extension);
+            }
+        }
+        return typeRegistry.freeze();
+    }
+
+    private static <T> Map<String, T> inOrder(PersistentHashMap<String, Ordered<T>> map) {
+        Map<String, Ordered<T>> entries = new HashMap<String, Ordered<T>>(map.size() * 2);
+        map.putAllInto(entries);
+        List<Map.Entry<String, Ordered<T>>> ordered = new ArrayList<Map.Entry<String, Ordered<T>>>(entries.entrySet());
+        Collections.sort(ordered, new Comparator<Map.Entry<String, Ordered<T>>>() {
+            @Override
+            public int compare(Map.Entry<String, Ordered<T>> a, Map.Entry<String, Ordered<T>> b) {
+                return a.getValue().order < b.getValue().order ? -1 : a.getValue().order == b.getValue().order ? 0 : 1;
+            }
+        });
+        Map<String, T> result = new LinkedHashMap<String, T>(ordered.size() * 2);
+        for (Map.Entry<String, Ordered<T>> entry : ordered) {
+            result.put(entry.getKey(), entry.getValue().value);
+        }
+        return result;
+    }
+
+    /**
+     * A definition along with when it was added
+     */
+    private static final class Ordered<T> {
+        private final long order;
+        private final T value;
+
+        Ordered(long order, T value) {
+            this.order = order;
+            this.value = value;
+        }
+    }
+}
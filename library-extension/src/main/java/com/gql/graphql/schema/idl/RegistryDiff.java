@@ -0,0 +1,250 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.Directive;
+import graphql.language.EnumTypeDefinition;
+import graphql.language.EnumValueDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import graphql.language.UnionTypeDefinition;
+import com.gql.graphql.schema.idl.SchemaChange.Element;
+import com.gql.graphql.schema.idl.SchemaChange.Kind;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out the changes between two registries, a type at a time.  A type whose structural hash is the same in both
+ * is skipped without looking at its definition, and within a changed type so is every field and argument whose hash
+ * is the same, so the cost grows with the size of the changes rather than with the size of the schemas.
+ *
+ * A type is taken together with its type extensions, so moving a field from a type into an extension of it is not
+ * a change.  Nor is reordering fields, arguments or values.
+ */
+final class RegistryDiff {
+
+    private final TypeDefinitionRegistry oldTypeRegistry;
+    private final TypeDefinitionRegistry newTypeRegistry;
+    private final StructuralHashes oldHashes;
+    private final StructuralHashes newHashes;
+    private final List<SchemaChange> changes = new ArrayList<SchemaChange>();
+
+    RegistryDiff(TypeDefinitionRegistry oldTypeRegistry, TypeDefinitionRegistry newTypeRegistry) {
+        this.oldTypeRegistry = oldTypeRegistry;
+        this.newTypeRegistry = newTypeRegistry;
+        this.oldHashes = oldTypeRegistry.structuralHashes();
+        this.newHashes = newTypeRegistry.structuralHashes();
+    }
+
+    List<SchemaChange> changes() {
+        return changes;
+    }
+
+    void diffSchema(SchemaDefinition before, SchemaDefinition after) {
+        if (before == null && after == null) {
+            return;
+        }
+        if (before == null) {
+            changes.add(new SchemaChange(Kind.ADDED, Element.SCHEMA, null, null, null, null, after));
+        } else if (after == null) {
+            changes.add(new SchemaChange(Kind.REMOVED, Element.SCHEMA, null, null, null, before, null));
+        } else if (StructuralHashes.hash(before) != StructuralHashes.hash(after)) {
+            changes.add(new SchemaChange(Kind.MODIFIED, Element.SCHEMA, null, null, null, before, after));
+        }
+    }
+
+    /**
+     * Diffs the type of a name that at least one of the registries defines
+     */
+    void diffType(String typeName, boolean existedBefore, boolean existsAfter) {
+        if (existedBefore && existsAfter && oldHashes.localHash(typeName) == newHashes.localHash(typeName)) {
+            return;
+        }
+        TypeDefinition before = existedBefore ? definition(oldTypeRegistry, typeName) : null;
+        TypeDefinition after = existsAfter ? definition(newTypeRegistry, typeName) : null;
+        if (before == null) {
+            changes.add(new SchemaChange(Kind.ADDED, Element.TYPE, typeName, null, typeName, null, after));
+            return;
+        }
+        if (after == null) {
+            changes.add(new SchemaChange(Kind.REMOVED, Element.TYPE, typeName, null, typeName, before, null));
+            return;
+        }
+        List<TypeExtensionDefinition> beforeExtensions = oldTypeRegistry.typeExtensions(typeName);
+        List<TypeExtensionDefinition> afterExtensions = newTypeRegistry.typeExtensions(typeName);
+        if (kind(before) != kind(after)
+                || StructuralHashes.hashDirectives(directives(before, beforeExtensions)) != StructuralHashes.hashDirectives(directives(after, afterExtensions))) {
+            changes.add(new SchemaChange(Kind.MODIFIED, Element.TYPE, typeName, null, typeName, before, after));
+            if (kind(before) != kind(after)) {
+                return;
+            }
+        }
+
+        if (before instanceof ObjectTypeDefinition) {
+            diffNames(Element.IMPLEMENTED_INTERFACE, typeName, implementedInterfaces(before, beforeExtensions), implementedInterfaces(after, afterExtensions));
+            diffFields(typeName, fields(before, beforeExtensions), fields(after, afterExtensions));
+        } else if (before instanceof InterfaceTypeDefinition) {
+            diffFields(typeName, ((InterfaceTypeDefinition) before).getFieldDefinitions(), ((InterfaceTypeDefinition) after).getFieldDefinitions());
+        } else if (before instanceof UnionTypeDefinition) {
+            diffNames(Element.UNION_MEMBER, typeName, names(((UnionTypeDefinition) before).getMemberTypes()), names(((UnionTypeDefinition) after).getMemberTypes()));
+        } else if (before instanceof EnumTypeDefinition) {
+            diffEnumValues(typeName, ((EnumTypeDefinition) before).getEnumValueDefinitions(), ((EnumTypeDefinition) after).getEnumValueDefinitions());
+        } else if (before instanceof InputObjectTypeDefinition) {
+            diffInputValues(Element.INPUT_FIELD, typeName, null,
+                    ((InputObjectTypeDefinition) before).getInputValueDefinitions(), ((InputObjectTypeDefinition) after).getInputValueDefinitions());
+        }
+    }
+
+    private void diffFields(String typeName, List<FieldDefinition> before, List<FieldDefinition> after) {
+        Map<String, FieldDefinition> afterByName = new LinkedHashMap<String, FieldDefinition>();
+        for (FieldDefinition fieldDefinition : after) {
+            afterByName.put(fieldDefinition.getName(), fieldDefinition);
+        }
+        for (FieldDefinition beforeField : before) {
+            String name = beforeField.getName();
+            FieldDefinition afterField = afterByName.remove(name);
+            if (afterField == null) {
+                changes.add(new SchemaChange(Kind.REMOVED, Element.FIELD, typeName, name, name, beforeField, null));
+            } else if (StructuralHashes.hash(beforeField) != StructuralHashes.hash(afterField)) {
+                if (StructuralHashes.hash(beforeField.getType()) != StructuralHashes.hash(afterField.getType())
+                        || StructuralHashes.hashDirectives(beforeField.getDirectives()) != StructuralHashes.hashDirectives(afterField.getDirectives())) {
+                    changes.add(new SchemaChange(Kind.MODIFIED, Element.FIELD, typeName, name, name, beforeField, afterField));
+                }
+                diffInputValues(Element.ARGUMENT, typeName, name, beforeField.getInputValueDefinitions(), afterField.getInputValueDefinitions());
+            }
+        }
+        for (FieldDefinition afterField : afterByName.values()) {
+            changes.add(new SchemaChange(Kind.ADDED, Element.FIELD, typeName, afterField.getName(), afterField.getName(), null, afterField));
+        }
+    }
+
+    private void diffInputValues(Element element, String typeName, String fieldName, List<InputValueDefinition> before, List<InputValueDefinition> after) {
+        Map<String, InputValueDefinition> afterByName = new LinkedHashMap<String, InputValueDefinition>();
+        for (InputValueDefinition inputValueDefinition : after) {
+            afterByName.put(inputValueDefinition.getName(), inputValueDefinition);
+        }
+        for (InputValueDefinition beforeValue : before) {
+            String name = beforeValue.getName();
+            InputValueDefinition afterValue = afterByName.remove(name);
+            if (afterValue == null) {
+                changes.add(new SchemaChange(Kind.REMOVED, element, typeName, fieldName, name, beforeValue, null));
+            } else if (StructuralHashes.hash(beforeValue) != StructuralHashes.hash(afterValue)) {
+                changes.add(new SchemaChange(Kind.MODIFIED, element, typeName, fieldName, name, beforeValue, afterValue));
+            }
+        }
+        for (InputValueDefinition afterValue : afterByName.values()) {
+            changes.add(new SchemaChange(Kind.ADDED, element, typeName, fieldName, afterValue.getName(), null, afterValue));
+        }
+    }
+
+    private void diffEnumValues(String typeName, List<EnumValueDefinition> before, List<EnumValueDefinition> after) {
+        Map<String, EnumValueDefinition> afterByName = new LinkedHashMap<String, EnumValueDefinition>();
+        for (EnumValueDefinition enumValueDefinition : after) {
+            afterByName.put(enumValueDefinition.getName(), enumValueDefinition);
+        }
+        for (EnumValueDefinition beforeValue : before) {
+            String name = beforeValue.getName();
+            EnumValueDefinition afterValue = afterByName.remove(name);
+            if (afterValue == null) {
+                changes.add(new SchemaChange(Kind.REMOVED, Element.ENUM_VALUE, typeName, null, name, beforeValue, null));
+            } else if (StructuralHashes.hashDirectives(beforeValue.getDirectives()) != StructuralHashes.hashDirectives(afterValue.getDirectives())) {
+                changes.add(new SchemaChange(Kind.MODIFIED, Element.ENUM_VALUE, typeName, null, name, beforeValue, afterValue));
+            }
+        }
+        for (EnumValueDefinition afterValue : afterByName.values()) {
+            changes.add(new SchemaChange(Kind.ADDED, Element.ENUM_VALUE, typeName, null, afterValue.getName(), null, afterValue));
+        }
+    }
+
+    private void diffNames(Element element, String typeName, Map<String, Type> before, Map<String, Type> after) {
+        for (Map.Entry<String, Type> entry : before.entrySet()) {
+            if (!after.containsKey(entry.getKey())) {
+                changes.add(new SchemaChange(Kind.REMOVED, element, typeName, null, entry.getKey(), entry.getValue(), null));
+            }
+        }
+        for (Map.Entry<String, Type> entry : after.entrySet()) {
+            if (!before.containsKey(entry.getKey())) {
+                changes.add(new SchemaChange(Kind.ADDED, element, typeName, null, entry.getKey(), null, entry.getValue()));
+            }
+        }
+    }
+
+    // the definition of a name, or its first type extension if it only has extensions
+    private static TypeDefinition definition(TypeDefinitionRegistry typeRegistry, String typeName) {
+        TypeDefinition typeDefinition = typeRegistry.getType(typeName);
+        if (typeDefinition == null) {
+            List<TypeExtensionDefinition> typeExtensions = typeRegistry.typeExtensions(typeName);
+            if (!typeExtensions.isEmpty()) {
+                typeDefinition = typeExtensions.get(0);
+            }
+        }
+        return typeDefinition;
+    }
+
+    // a type extension extends an object type so it is of the same kind
+    private static Class<?> kind(TypeDefinition typeDefinition) {
+        return typeDefinition instanceof ObjectTypeDefinition ? ObjectTypeDefinition.class : typeDefinition.getClass();
+    }
+
+    private static List<Directive> directives(TypeDefinition typeDefinition, List<TypeExtensionDefinition> typeExtensions) {
+        List<Directive> directives = new ArrayList<Directive>();
+        if (!(typeDefinition instanceof TypeExtensionDefinition)) {
+            if (typeDefinition instanceof ObjectTypeDefinition) {
+                directives.addAll(((ObjectTypeDefinition) typeDefinition).getDirectives());
+            } else if (typeDefinition instanceof InterfaceTypeDefinition) {
+                directives.addAll(((InterfaceTypeDefinition) typeDefinition).getDirectives());
+            } else if (typeDefinition instanceof UnionTypeDefinition) {
+                directives.addAll(((UnionTypeDefinition) typeDefinition).getDirectives());
+            } else if (typeDefinition instanceof EnumTypeDefinition) {
+                directives.addAll(((EnumTypeDefinition) typeDefinition).getDirectives());
+            } else if (typeDefinition instanceof InputObjectTypeDefinition) {
+                directives.addAll(((InputObjectTypeDefinition) typeDefinition).getDirectives());
+            } else if (typeDefinition instanceof ScalarTypeDefinition) {
+                directives.addAll(((ScalarTypeDefinition) typeDefinition).getDirectives());
+            }
+        }
+        for (TypeExtensionDefinition typeExtension : typeExtensions) {
+            directives.addAll(typeExtension.getDirectives());
+        }
+        return directives;
+    }
+
+    private static Map<String, Type> implementedInterfaces(TypeDefinition typeDefinition, List<TypeExtensionDefinition> typeExtensions) {
+        Map<String, Type> names = new LinkedHashMap<String, Type>();
+        if (!(typeDefinition instanceof TypeExtensionDefinition)) {
+            names.putAll(names(((ObjectTypeDefinition) typeDefinition).getImplements()));
+        }
+        for (TypeExtensionDefinition typeExtension : typeExtensions) {
+            names.putAll(names(typeExtension.getImplements()));
+        }
+        return names;
+    }
+
+    private static List<FieldDefinition> fields(TypeDefinition typeDefinition, List<TypeExtensionDefinition> typeExtensions) {
+        List<FieldDefinition> fields = new ArrayList<FieldDefinition>();
+        if (!(typeDefinition instanceof TypeExtensionDefinition)) {
+            fields.addAll(((ObjectTypeDefinition) typeDefinition).getFieldDefinitions());
+        }
+        for (TypeExtensionDefinition typeExtension : typeExtensions) {
+            fields.addAll(typeExtension.getFieldDefinitions());
+        }
+        return fields;
+    }
+
+    private static Map<String, Type> names(List<Type> types) {
+        Map<String, Type> names = new LinkedHashMap<String, Type>();
+        for (Type type : types) {
+            names.put(TypeInfo.typeInfo(type).getName(), type);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,121 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.Node;
+
+/**
+ * One difference between two type registries, as found by {@link TypeDefinitionRegistry#diff(TypeDefinitionRegistry)}
+ */
+public class SchemaChange {
+
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        MODIFIED
+    }
+
+    /**
+     * What changed.  A type is modified when its kind or its own directives change, a field or an argument when its
+     * type, default value or directives do.
+     */
+    public enum Element {
+        SCHEMA,
+        TYPE,
+        IMPLEMENTED_INTERFACE,
+        UNION_MEMBER,
+        FIELD,
+        ARGUMENT,
+        INPUT_FIELD,
+        ENUM_VALUE
+    }
+
+    private final Kind kind;
+    private final Element element;
+    private final String typeName;
+    private final String fieldName;
+    private final String name;
+    private final Node before;
+    private final Node after;
+
+    SchemaChange(Kind kind, Element element, String typeName, String fieldName, String name, Node before, Node after) {
+        this.kind = kind;
+        this.element = element;
+        this.typeName = typeName;
+        this.fieldName = fieldName;
+        this.name = name;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Element getElement() {
+        return element;
+    }
+
+    /**
+     * @return the name of the type the change is in, or null for a change to the schema definition
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * @return the name of the field the change is in, which is only set for fields and their arguments
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return the name of what changed, say the name of the argument for an argument
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the definition before the change, or null if it was added
+     */
+    public Node getBefore() {
+        return before;
+    }
+
+    /**
+     * @return the definition after the change, or null if it was removed
+     */
+    public Node getAfter() {
+        return after;
+    }
+
+    /**
+     * @return where the change is, such as {@code Query}, {@code Query.hero}, {@code Query.hero(episode:)} or
+     * {@code Droid implements Character}
+     */
+    public String getCoordinate() {
+        switch (element) {
+            case SCHEMA:
+                return "schema";
+            case TYPE:
+                return typeName;
+            case IMPLEMENTED_INTERFACE:
+                return typeName + " implements " + name;
+            case UNION_MEMBER:
+                return typeName + " = " + name;
+            case ARGUMENT:
+                return typeName + "." + fieldName + "(" + name + ":)";
+            default:
+                return typeName + "." + name;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaChange{" +
+                "kind=" + kind +
+                ", element=" + element +
+                ", coordinate=" + getCoordinate() +
+                '}';
+    }
+}
@@ -0,0 +1,519 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.ArrayValue;
+import graphql.language.BooleanValue;
+import graphql.language.EnumTypeDefinition;
+import graphql.language.EnumValue;
+import graphql.language.EnumValueDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.FloatValue;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.IntValue;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ListType;
+import graphql.language.NonNullType;
+import graphql.language.ObjectField;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.ObjectValue;
+import graphql.language.OperationTypeDefinition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.StringValue;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.UnionTypeDefinition;
+import graphql.language.Value;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static graphql.Assert.assertNotNull;
+
+/**
+ * This compiles schema definitions into the source of a Java class that builds the same executable schema as
+ * {@link SchemaGenerator#makeExecutableSchema(TypeDefinitionRegistry, RuntimeWiring)} straight from the graphql-java
+ * builders.  The generated class has a {@code newSchema(RuntimeWiring)} method so at runtime there is no
+ * parsing, no registry and no recursive build, just a run of builder calls.  The calls are split, in build order,
+ * across nested classes of a couple of hundred types each, so schemas of any size stay within the limits Java puts
+ * on the size of a method and of a class.
+ *
+ * The runtime wiring plugs in as it does today: data fetchers, type resolvers and scalars are looked up by name
+ * in the {@link RuntimeWiring} when the schema is created.  A {@link WiringFactory} is not consulted since it
+ * works off type definitions and there are none at runtime.
+ *
+ * Run {@link #main(String[])} as a build step, say from the exec-maven-plugin in the generate-sources phase, and
+ * add the output directory as a source root.
+ */
+public class SchemaCompiler {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * How many types go into each nested class of the generated class.  A big schema compiled into one method,
+     * or one class, runs into the limits of the class file format at a few thousand types.
+     */
+    static final int TYPES_PER_CLASS = 200;
+
+    private final TypeDefinitionRegistry typeRegistry;
+    private final StringBuilder out = new StringBuilder();
+    private int indent;
+
+    private SchemaCompiler(TypeDefinitionRegistry typeRegistry) {
+        this.typeRegistry = typeRegistry;
+    }
+
+    /**
+     * Compiles the schema files found in a directory into a Java class
+     *
+     * @param args the schema directory, the output source directory and the fully qualified name of the class to
+     *             generate
+     *
+     * @throws IOException if the class cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SchemaCompiler <schema directory> <output directory> <class name>");
+            System.exit(1);
+        }
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parseDirectory(Paths.get(args[0]));
+        String className = args[2];
+        Path sourceFile = Paths.get(args[1], className.replace('.', '/') + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        try (Writer writer = Files.newBufferedWriter(sourceFile, UTF_8)) {
+            writer.write(compile(typeRegistry, className));
+        }
+    }
+
+    /**
+     * Compiles a registry into the source of a Java class
+     *
+     * @param typeRegistry the schema definitions
+     * @param className    the fully qualified name of the class to generate
+     *
+     * @return the Java source
+     *
+     * @throws SchemaProblem if the type extensions of the registry cannot be folded into their types
+     */
+    public static String compile(TypeDefinitionRegistry typeRegistry, String className) throws SchemaProblem {
+        assertNotNull(typeRegistry, "You must provide a type registry");
+        assertNotNull(className, "You must provide a class name");
+        return new SchemaCompiler(typeRegistry.flatten()).compileClass(className);
+    }
+
+    private String compileClass(String qualifiedClassName) {
+        SchemaDefinition schemaDefinition = typeRegistry.schemaDefinition();
+        if (schemaDefinition == null) {
+            throw new IllegalArgumentException("The schema definitions have no schema to compile");
+        }
+        String queryTypeName = null;
+        for (OperationTypeDefinition operationTypeDefinition : schemaDefinition.getOperationTypeDefinitions()) {
+            if ("query".equals(operationTypeDefinition.getName())) {
+                queryTypeName = TypeInfo.typeInfo(operationTypeDefinition.getType()).getName();
+            }
+        }
+        if (queryTypeName == null) {
+            throw new IllegalArgumentException("The schema has no query operation");
+        }
+        List<TypeDefinition> typeDefinitions = buildOrder(reachableTypes(queryTypeName));
+
+        int lastDot = qualifiedClassName.lastIndexOf('.');
+        String className = qualifiedClassName.substring(lastDot + 1);
+        if (lastDot > 0) {
+            line("package " + qualifiedClassName.substring(0, lastDot) + ";");
+            line("");
+        }
+        line("import com.gql.graphql.schema.idl.RuntimeWiring;");
+        line("import graphql.schema.DataFetcher;");
+        line("import graphql.schema.GraphQLArgument;");
+        line("import graphql.schema.GraphQLEnumType;");
+        line("import graphql.schema.GraphQLFieldDefinition;");
+        line("import graphql.schema.GraphQLInputObjectField;");
+        line("import graphql.schema.GraphQLInputObjectType;");
+        line("import graphql.schema.GraphQLInputType;");
+        line("import graphql.schema.GraphQLInterfaceType;");
+        line("import graphql.schema.GraphQLList;");
+        line("import graphql.schema.GraphQLNonNull;");
+        line("import graphql.schema.GraphQLObjectType;");
+        line("import graphql.schema.GraphQLOutputType;");
+        line("import graphql.schema.GraphQLScalarType;");
+        line("import graphql.schema.GraphQLSchema;");
+        line("import graphql.schema.GraphQLType;");
+        line("import graphql.schema.GraphQLTypeReference;");
+        line("import graphql.schema.GraphQLUnionType;");
+        line("import graphql.schema.PropertyDataFetcher;");
+        line("import graphql.schema.TypeResolver;");
+        line("import graphql.schema.TypeResolverProxy;");
+        line("");
+        line("import java.math.BigDecimal;");
+        line("import java.math.BigInteger;");
+        line("import java.util.LinkedHashMap;");
+        line("import java.util.LinkedHashSet;");
+        line("import java.util.Map;");
+        line("");
+        line("/**");
+        line(" * Generated by " + SchemaCompiler.class.getName() + ", do not edit");
+        line(" */");
+        open("public final class " + className + " {");
+        line("");
+        open("private " + className + "() {");
+        close("}");
+        line("");
+        line("/**");
+        line(" * @param wiring the data fetchers, type resolvers and scalars to wire in");
+        line(" *");
+        line(" * @return a new executable schema");
+        line(" */");
+        open("public static GraphQLSchema newSchema(RuntimeWiring wiring) {");
+        line("Map<String, GraphQLType> types = new LinkedHashMap<String, GraphQLType>();");
+        int groups = (typeDefinitions.size() + TYPES_PER_CLASS - 1) / TYPES_PER_CLASS;
+        for (int group = 0; group < groups; group++) {
+            line(groupClassName(group) + ".build(wiring, types);");
+        }
+        line("return GraphQLSchema.newSchema()");
+        line("        .query((GraphQLObjectType) types.get(" + literal(queryTypeName) + "))");
+        line("        .build(new LinkedHashSet<GraphQLType>(types.values()));");
+        close("}");
+
+        for (int group = 0; group < groups; group++) {
+            int from = group * TYPES_PER_CLASS;
+            compileGroup(group, typeDefinitions.subList(from, Math.min(from + TYPES_PER_CLASS, typeDefinitions.size())));
+        }
+        compileHelpers();
+        close("}");
+        return out.toString();
+    }
+
+    /**
+     * Compiles a run of types, in build order, into a nested class of their own.  Its {@code build} method puts
+     * them into the map and its other methods build one type each, so neither a method nor the constant pool of a
+     * class grows with the size of the schema.
+     */
+    private void compileGroup(int group, List<TypeDefinition> typeDefinitions) {
+        line("");
+        open("private static final class " + groupClassName(group) + " {");
+        line("");
+        open("static void build(RuntimeWiring wiring, Map<String, GraphQLType> types) {");
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            if (typeDefinition instanceof ScalarTypeDefinition) {
+                line("types.put(" + literal(typeDefinition.getName()) + ", scalar(wiring, " + literal(typeDefinition.getName()) + "));");
+            } else {
+                line("types.put(" + literal(typeDefinition.getName()) + ", " + methodName(typeDefinition) + "(wiring, types));");
+            }
+        }
+        close("}");
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            if (typeDefinition instanceof ObjectTypeDefinition) {
+                compileObjectType((ObjectTypeDefinition) typeDefinition);
+            } else if (typeDefinition instanceof InterfaceTypeDefinition) {
+                compileInterfaceType((InterfaceTypeDefinition) typeDefinition);
+            } else if (typeDefinition instanceof UnionTypeDefinition) {
+                compileUnionType((UnionTypeDefinition) typeDefinition);
+            } else if (typeDefinition instanceof EnumTypeDefinition) {
+                compileEnumType((EnumTypeDefinition) typeDefinition);
+            } else if (typeDefinition instanceof InputObjectTypeDefinition) {
+                compileInputObjectType((InputObjectTypeDefinition) typeDefinition);
+            }
+        }
+        close("}");
+    }
+
+    private static String groupClassName(int group) {
+        return "Types" + group;
+    }
+
+    /**
+     * Works out the types the generator would build, which are those reachable from the query type
+     */
+    private Set<String> reachableTypes(String queryTypeName) {
+        Set<String> reachable = typeRegistry.reachableTypes(Collections.singleton(queryTypeName));
+        for (String name : reachable) {
+            if (typeRegistry.getType(name) == null) {
+                throw new IllegalArgumentException(String.format("The type '%s' is not defined", name));
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Orders the types so that every type a builder needs as an actual instance, an interface an object
+     * implements or an object that is a member of a union, is built before it.  Every other reference goes
+     * through a type reference that the schema resolves once everything is built.  This is the order of the
+     * build phases of {@link SchemaGenerator}, so the compiled schema lists its types in the same order as the
+     * generated one.
+     */
+    private List<TypeDefinition> buildOrder(Set<String> names) {
+        List<TypeDefinition> scalarsAndEnums = new ArrayList<TypeDefinition>();
+        List<TypeDefinition> interfacesAndInputObjects = new ArrayList<TypeDefinition>();
+        List<TypeDefinition> objects = new ArrayList<TypeDefinition>();
+        List<TypeDefinition> unions = new ArrayList<TypeDefinition>();
+        for (String name : names) {
+            TypeDefinition typeDefinition = typeRegistry.getType(name);
+            if (typeDefinition instanceof ScalarTypeDefinition || typeDefinition instanceof EnumTypeDefinition) {
+                scalarsAndEnums.add(typeDefinition);
+            } else if (typeDefinition instanceof InterfaceTypeDefinition || typeDefinition instanceof InputObjectTypeDefinition) {
+                interfacesAndInputObjects.add(typeDefinition);
+            } else if (typeDefinition instanceof ObjectTypeDefinition) {
+                objects.add(typeDefinition);
+            } else {
+                unions.add(typeDefinition);
+            }
+        }
+        List<TypeDefinition> ordered = new ArrayList<TypeDefinition>(names.size());
+        ordered.addAll(scalarsAndEnums);
+        ordered.addAll(interfacesAndInputObjects);
+        ordered.addAll(objects);
+        ordered.addAll(unions);
+        return ordered;
+    }
+
+    private void compileObjectType(ObjectTypeDefinition typeDefinition) {
+        openTypeMethod("GraphQLObjectType", typeDefinition);
+        line("return GraphQLObjectType.newObject()");
+        indent += 2;
+        line(".name(" + literal(typeDefinition.getName()) + ")");
+        line(".description(\"\")");
+        // the registry is flattened, so the definition already holds the fields and interfaces of its type extensions
+        for (FieldDefinition fieldDefinition : typeDefinition.getFieldDefinitions()) {
+            compileField(typeDefinition, fieldDefinition);
+        }
+        for (Type type : typeDefinition.getImplements()) {
+            line(".withInterface((GraphQLInterfaceType) types.get(" + literal(TypeInfo.typeInfo(type).getName()) + "))");
+        }
+        line(".build();");
+        indent -= 2;
+        close("}");
+    }
+
+    private void compileInterfaceType(InterfaceTypeDefinition typeDefinition) {
+        openTypeMethod("GraphQLInterfaceType", typeDefinition);
+        line("return GraphQLInterfaceType.newInterface()");
+        indent += 2;
+        line(".name(" + literal(typeDefinition.getName()) + ")");
+        line(".description(\"\")");
+        line(".typeResolver(typeResolver(wiring, " + literal(typeDefinition.getName()) + "))");
+        for (FieldDefinition fieldDefinition : typeDefinition.getFieldDefinitions()) {
+            compileField(typeDefinition, fieldDefinition);
+        }
+        line(".build();");
+        indent -= 2;
+        close("}");
+    }
+
+    private void compileUnionType(UnionTypeDefinition typeDefinition) {
+        openTypeMethod("GraphQLUnionType", typeDefinition);
+        line("return GraphQLUnionType.newUnionType()");
+        indent += 2;
+        line(".name(" + literal(typeDefinition.getName()) + ")");
+        line(".description(\"\")");
+        line(".typeResolver(typeResolver(wiring, " + literal(typeDefinition.getName()) + "))");
+        for (Type memberType : typeDefinition.getMemberTypes()) {
+            String memberName = TypeInfo.typeInfo(memberType).getName();
+            if (!(typeRegistry.getType(memberName) instanceof ObjectTypeDefinition)) {
+                throw new IllegalArgumentException(String.format("The union '%s' has '%s' as a member which is not an object type", typeDefinition.getName(), memberName));
+            }
+            line(".possibleType((GraphQLObjectType) types.get(" + literal(memberName) + "))");
+        }
+        line(".build();");
+        indent -= 2;
+        close("}");
+    }
+
+    private void compileEnumType(EnumTypeDefinition typeDefinition) {
+        openTypeMethod("GraphQLEnumType", typeDefinition);
+        line("return GraphQLEnumType.newEnum()");
+        indent += 2;
+        line(".name(" + literal(typeDefinition.getName()) + ")");
+        line(".description(\"\")");
+        for (EnumValueDefinition enumValueDefinition : typeDefinition.getEnumValueDefinitions()) {
+            line(".value(" + literal(enumValueDefinition.getName()) + ")");
+        }
+        line(".build();");
+        indent -= 2;
+        close("}");
+    }
+
+    private void compileInputObjectType(InputObjectTypeDefinition typeDefinition) {
+        openTypeMethod("GraphQLInputObjectType", typeDefinition);
+        line("return GraphQLInputObjectType.newInputObject()");
+        indent += 2;
+        line(".name(" + literal(typeDefinition.getName()) + ")");
+        line(".description(\"\")");
+        for (InputValueDefinition inputValueDefinition : typeDefinition.getInputValueDefinitions()) {
+            line(".field(GraphQLInputObjectField.newInputObjectField()");
+            indent += 2;
+            line(".name(" + literal(inputValueDefinition.getName()) + ")");
+            line(".description(\"\")");
+            line(".type((GraphQLInputType) " + typeExpression(inputValueDefinition.getType()) + ")");
+            line(".defaultValue(" + valueExpression(inputValueDefinition.getDefaultValue()) + ")");
+            line(".build())");
+            indent -= 2;
+        }
+        line(".build();");
+        indent -= 2;
+        close("}");
+    }
+
+    private void compileField(TypeDefinition parentType, FieldDefinition fieldDefinition) {
+        line(".field(GraphQLFieldDefinition.newFieldDefinition()");
+        indent += 2;
+        line(".name(" + literal(fieldDefinition.getName()) + ")");
+        line(".description(\"\")");
+        line(".dataFetcher(dataFetcher(wiring, " + literal(parentType.getName()) + ", " + literal(fieldDefinition.getName()) + "))");
+        for (InputValueDefinition inputValueDefinition : fieldDefinition.getInputValueDefinitions()) {
+            line(".argument(GraphQLArgument.newArgument()");
+            indent += 2;
+            line(".name(" + literal(inputValueDefinition.getName()) + ")");
+            line(".description(\"\")");
+            line(".type((GraphQLInputType) " + typeExpression(inputValueDefinition.getType()) + ")");
+            line(".defaultValue(" + valueExpression(inputValueDefinition.getDefaultValue()) + ")");
+            line(".build())");
+            indent -= 2;
+        }
+        line(".type((GraphQLOutputType) " + typeExpression(fieldDefinition.getType()) + ")");
+        line(".build())");
+        indent -= 2;
+    }
+
+    private void openTypeMethod(String returnType, TypeDefinition typeDefinition) {
+        line("");
+        open("private static " + returnType + " " + methodName(typeDefinition) + "(RuntimeWiring wiring, Map<String, GraphQLType> types) {");
+    }
+
+    private static String methodName(TypeDefinition typeDefinition) {
+        return "build" + typeDefinition.getName();
+    }
+
+    private String typeExpression(Type type) {
+        if (type instanceof NonNullType) {
+            return "new GraphQLNonNull(" + typeExpression(((NonNullType) type).getType()) + ")";
+        }
+        if (type instanceof ListType) {
+            return "new GraphQLList(" + typeExpression(((ListType) type).getType()) + ")";
+        }
+        return "named(types, " + literal(TypeInfo.typeInfo(type).getName()) + ")";
+    }
+
+    // the same values SchemaGenerator makes of default values
+    private String valueExpression(Value value) {
+        if (value instanceof IntValue) {
+            return "new BigInteger(" + literal(((IntValue) value).getValue().toString()) + ")";
+        } else if (value instanceof FloatValue) {
+            return "new BigDecimal(" + literal(((FloatValue) value).getValue().toString()) + ")";
+        } else if (value instanceof StringValue) {
+            return literal(((StringValue) value).getValue());
+        } else if (value instanceof EnumValue) {
+            return literal(((EnumValue) value).getName());
+        } else if (value instanceof BooleanValue) {
+            return String.valueOf(((BooleanValue) value).isValue());
+        } else if (value instanceof ObjectValue) {
+            StringBuilder sb = new StringBuilder("map(");
+            List<ObjectField> objectFields = ((ObjectValue) value).getObjectFields();
+            for (int i = 0; i < objectFields.size(); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(literal(objectFields.get(i).getName())).append(", ").append(valueExpression(objectFields.get(i).getValue()));
+            }
+            return sb.append(")").toString();
+        } else if (value instanceof ArrayValue) {
+            // the generator does not build list default values
+            return "null";
+        }
+        return "null";
+    }
+
+    private void compileHelpers() {
+        line("");
+        open("private static GraphQLType named(Map<String, GraphQLType> types, String name) {");
+        line("GraphQLType type = types.get(name);");
+        line("return type != null ? type : new GraphQLTypeReference(name);");
+        close("}");
+        line("");
+        open("private static GraphQLScalarType scalar(RuntimeWiring wiring, String name) {");
+        line("GraphQLScalarType scalarType = wiring.getScalars().get(name);");
+        open("if (scalarType == null) {");
+        line("throw new IllegalStateException(\"There is no scalar implementation for the named '\" + name + \"' scalar type\");");
+        close("}");
+        line("return scalarType;");
+        close("}");
+        line("");
+        open("private static DataFetcher dataFetcher(RuntimeWiring wiring, String typeName, String fieldName) {");
+        line("DataFetcher dataFetcher = wiring.getDataFetcherForType(typeName).get(fieldName);");
+        line("return dataFetcher != null ? dataFetcher : new PropertyDataFetcher(fieldName);");
+        close("}");
+        line("");
+        open("private static TypeResolver typeResolver(RuntimeWiring wiring, String typeName) {");
+        line("TypeResolver typeResolver = wiring.getTypeResolvers().get(typeName);");
+        line("return typeResolver != null ? typeResolver : new TypeResolverProxy();");
+        close("}");
+        line("");
+        open("private static Map<String, Object> map(Object... keysAndValues) {");
+        line("Map<String, Object> map = new LinkedHashMap<String, Object>();");
+        open("for (int i = 0; i < keysAndValues.length; i += 2) {");
+        line("map.put((String) keysAndValues[i], keysAndValues[i + 1]);");
+        close("}");
+        line("return map;");
+        close("}");
+    }
+
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7E) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private void open(String text) {
+        line(text);
+        indent++;
+    }
+
+    private void close(String text) {
+        indent--;
+        line(text);
+    }
+
+    private void line(String text) {
+        if (!text.isEmpty()) {
+            for (int i = 0; i < indent; i++) {
+                out.append("    ");
+            }
+            out.append(text);
+        }
+        out.append('\n');
+    }
+}
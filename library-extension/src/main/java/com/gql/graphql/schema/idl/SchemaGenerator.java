@@ -25,7 +25,7 @@ import graphql.language.SchemaDefinition;
 import graphql.language.StringValue;
 import graphql.language.Type;
 import graphql.language.TypeDefinition;
-import graphql.language.TypeExtensionDefinition;
+import graphql.language.TypeName;
 import graphql.language.UnionTypeDefinition;
 import graphql.language.Value;
 import graphql.schema.DataFetcher;
@@ -36,31 +36,37 @@ import graphql.schema.GraphQLInputObjectField;
 import graphql.schema.GraphQLInputObjectType;
 import graphql.schema.GraphQLInputType;
 import graphql.schema.GraphQLInterfaceType;
+import graphql.schema.GraphQLModifiedType;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLOutputType;
 import graphql.schema.GraphQLScalarType;
 import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
 import graphql.schema.GraphQLTypeReference;
 import graphql.schema.GraphQLUnionType;
 import graphql.schema.PropertyDataFetcher;
 import graphql.schema.TypeResolver;
 import graphql.schema.TypeResolverProxy;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.gql.graphql.schema.idl.errors.NotAnInputTypeError;
 import com.gql.graphql.schema.idl.errors.NotAnOutputTypeError;
 import com.gql.graphql.schema.idl.errors.SchemaProblem;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 //import java.util.Optional;
-import java.util.Stack;
 
 import com.gql.graphql.language.AbstractNode;
 import com.gql.graphql.language.Comment;
@@ -81,64 +87,173 @@ public class SchemaGenerator {
     class BuildContext {
         private final TypeDefinitionRegistry typeRegistry;
         private final RuntimeWiring wiring;
-        private final Stack<String> definitionStack = new Stack<String>();
-
-        private final Map<String, GraphQLOutputType> outputGTypes = new HashMap<String, GraphQLOutputType>();
-        private final Map<String, GraphQLInputType> inputGTypes = new HashMap<String, GraphQLInputType>();
-
+        // every type name gets an id up front and what the build knows of a type is kept in arrays indexed by it,
+        // the ids of the frozen registry come first so its definitions can be looked up by id too
+        private final SymbolTable symbols;
+        private final int registrySymbols;
+        // the id of the type being built, or -1 between types
+        private int buildingId = -1;
+
+        private GraphQLOutputType[] outputGTypes;
+        private GraphQLInputType[] inputGTypes;
+        // when building in parallel, the types built in earlier phases by the ids of the registry, null otherwise
+        private final GraphQLType[] builtTypes;
+        // one type reference for each type not built yet, and the list and non null wrappers made so far around each
+        // type by decoration, those wrapped at most twice in a small array per type and the rest in a map
+        private GraphQLTypeReference[] typeReferences;
+        private GraphQLType[][] wrappedTypes;
+        private final Map<Long, GraphQLType> deeplyWrappedTypes = new HashMap<Long, GraphQLType>();
+
+        // a frozen registry, whose lookups and extension maps are never copied however often they are used
         BuildContext(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring) {
+            this(typeRegistry, wiring, null);
+        }
+
+        BuildContext(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, GraphQLType[] builtTypes) {
             this.typeRegistry = typeRegistry;
             this.wiring = wiring;
+            this.builtTypes = builtTypes;
+            this.symbols = new SymbolTable(typeRegistry.symbols());
+            this.registrySymbols = symbols.size();
+            int capacity = Math.max(registrySymbols, 16);
+            this.outputGTypes = new GraphQLOutputType[capacity];
+            this.inputGTypes = new GraphQLInputType[capacity];
+            this.typeReferences = new GraphQLTypeReference[capacity];
+            this.wrappedTypes = new GraphQLType[capacity][];
         }
 
         public TypeDefinitionRegistry getTypeRegistry() {
             return typeRegistry;
         }
 
-        @SuppressWarnings("OptionalGetWithoutIsPresent")
-        TypeDefinition getTypeDefinition(Type type) {
-            //return typeRegistry.getType(type).get();
-            return typeRegistry.getType(type);//.get();
+        /**
+         * @return the id of a type name, names the registry does not define get one too
+         */
+        int id(String typeName) {
+            int id = symbols.intern(typeName);
+            if (id >= outputGTypes.length) {
+                int capacity = outputGTypes.length * 2;
+                outputGTypes = Arrays.copyOf(outputGTypes, capacity);
+                inputGTypes = Arrays.copyOf(inputGTypes, capacity);
+                typeReferences = Arrays.copyOf(typeReferences, capacity);
+                wrappedTypes = Arrays.copyOf(wrappedTypes, capacity);
+            }
+            return id;
+        }
+
+        TypeDefinition getTypeDefinition(int id) {
+            return id < registrySymbols ? typeRegistry.getType(id) : null;
         }
 
-        boolean stackContains(TypeInfo typeInfo) {
-            return definitionStack.contains(typeInfo.getName());
+        /**
+         * @return true if a type is being built, which then refers to the types not built yet rather than building
+         * them
+         */
+        boolean isBuilding() {
+            return buildingId != -1;
         }
 
-        void push(TypeInfo typeInfo) {
-            definitionStack.push(typeInfo.getName());
+        void startBuilding(int id) {
+            buildingId = id;
         }
 
-        String pop() {
-            return definitionStack.pop();
+        void doneBuilding() {
+            buildingId = -1;
         }
 
-        GraphQLOutputType hasOutputType(TypeDefinition typeDefinition) {
-            return outputGTypes.get(typeDefinition.getName());
+        GraphQLOutputType hasOutputType(int id) {
+            GraphQLOutputType outputType = outputGTypes[id];
+            if (outputType == null && builtTypes != null && id < builtTypes.length && builtTypes[id] instanceof GraphQLOutputType) {
+                outputType = (GraphQLOutputType) builtTypes[id];
+            }
+            return outputType;
         }
 
-        GraphQLInputType hasInputType(TypeDefinition typeDefinition) {
-          if(typeDefinition!=null)
-            return inputGTypes.get(typeDefinition.getName());
-          else
-            {
-            return null;
-          }
+        GraphQLInputType hasInputType(int id) {
+            GraphQLInputType inputType = inputGTypes[id];
+            if (inputType == null && builtTypes != null && id < builtTypes.length && builtTypes[id] instanceof GraphQLInputType) {
+                inputType = (GraphQLInputType) builtTypes[id];
+            }
+            return inputType;
         }
 
-        void put(GraphQLOutputType outputType) {
-            outputGTypes.put(outputType.getName(), outputType);
+        /**
+         * @return the one type reference to the type that every type built by this context refers to it with
+         */
+        GraphQLTypeReference typeReference(int id) {
+            GraphQLTypeReference typeReference = typeReferences[id];
+            if (typeReference == null) {
+                typeReference = new GraphQLTypeReference(symbols.name(id));
+                typeReferences[id] = typeReference;
+            }
+            return typeReference;
+        }
+
+        /**
+         * Wraps a type in the lists and non nulls of a type info, so that every field, argument and input field of
+         * the same type wrapped alike, say {@code [Episode]!}, shares one chain of wrappers rather than each making
+         * its own.  A chain made around the reference to a type is made again once the type itself is built.
+         */
+        @SuppressWarnings("unchecked")
+        <T extends GraphQLType> T decorate(int id, TypeInfo typeInfo, GraphQLType type) {
+            int decoration = typeInfo.decoration();
+            if (decoration == TypeInfo.UNDECORATED) {
+                return (T) type;
+            }
+            GraphQLType[] shallowlyWrapped = null;
+            GraphQLType wrappedType;
+            if (decoration < SHALLOW_DECORATIONS) {
+                shallowlyWrapped = wrappedTypes[id];
+                if (shallowlyWrapped == null) {
+                    shallowlyWrapped = new GraphQLType[SHALLOW_DECORATIONS];
+                    wrappedTypes[id] = shallowlyWrapped;
+                }
+                wrappedType = shallowlyWrapped[decoration];
+            } else {
+                wrappedType = deeplyWrappedTypes.get((long) id << 32 | decoration);
+            }
+            if (wrappedType == null || unwrap(wrappedType) != type) {
+                wrappedType = typeInfo.decorate(type);
+                if (shallowlyWrapped != null) {
+                    shallowlyWrapped[decoration] = wrappedType;
+                } else {
+                    deeplyWrappedTypes.put((long) id << 32 | decoration, wrappedType);
+                }
+            }
+            return (T) wrappedType;
+        }
+
+        private GraphQLType unwrap(GraphQLType type) {
+            while (type instanceof GraphQLModifiedType) {
+                type = ((GraphQLModifiedType) type).getWrappedType();
+            }
+            return type;
+        }
+
+        void put(int id, GraphQLOutputType outputType) {
+            outputGTypes[id] = outputType;
             // certain types can be both input and output types, for example enums
             if (outputType instanceof GraphQLInputType) {
-                inputGTypes.put(outputType.getName(), (GraphQLInputType) outputType);
+                inputGTypes[id] = (GraphQLInputType) outputType;
             }
         }
 
-        void put(GraphQLInputType inputType) {
-            inputGTypes.put(inputType.getName(), inputType);
+        void put(int id, GraphQLInputType inputType) {
+            inputGTypes[id] = inputType;
             // certain types can be both input and output types, for example enums
             if (inputType instanceof GraphQLOutputType) {
-                outputGTypes.put(inputType.getName(), (GraphQLOutputType) inputType);
+                outputGTypes[id] = (GraphQLOutputType) inputType;
+            }
+        }
+
+        /**
+         * Makes an already built type available to the build as is, it will not be built again
+         */
+        void reuse(GraphQLType graphQLType) {
+            if (graphQLType instanceof GraphQLOutputType) {
+                put(id(graphQLType.getName()), (GraphQLOutputType) graphQLType);
+            } else if (graphQLType instanceof GraphQLInputType) {
+                put(id(graphQLType.getName()), (GraphQLInputType) graphQLType);
             }
         }
 
@@ -152,7 +267,12 @@ public class SchemaGenerator {
             return typeRegistry.schemaDefinition();//.get();
         }
     }
-    //private final SchemaTypeChecker typeChecker = new SchemaTypeChecker();
+    private final SchemaTypeChecker typeChecker = new SchemaTypeChecker();
+
+    // the fewest types built as one task when building in parallel
+    private static final int MIN_BATCH_SIZE = 32;
+    // the decorations of the types wrapped in at most two lists and non nulls are below this
+    private static final int SHALLOW_DECORATIONS = 8;
 
     public SchemaGenerator() {
     }
@@ -166,30 +286,191 @@ public class SchemaGenerator {
      * @throws SchemaProblem if there are problems in assembling a schema such as missing type resolvers or no operations defined
      */
     public GraphQLSchema makeExecutableSchema(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring) throws SchemaProblem {
-        BuildContext buildCtx = new BuildContext(typeRegistry, wiring);
+        BuildContext buildCtx = new BuildContext(checkTypeRegistry(typeRegistry, wiring), wiring);
 
         return makeExecutableSchemaImpl(buildCtx);
     }
 
-    private GraphQLSchema makeExecutableSchemaImpl(BuildContext buildCtx) {
+    /**
+     * This builds an executable schema for a changed registry from the schema built for the previous one, rebuilding
+     * only the types whose definitions or type extensions changed and the types that refer to them, directly or not.
+     * Every other type of the previous schema is used as it is, so a change to a few types of a large schema costs
+     * about as much as building those few.  The changed types are found by comparing
+     * {@link TypeDefinitionRegistry#structuralHash(String) structural hashes}, so the registries need not share any
+     * definitions.
+     *
+     * The previous schema must have been built from the previous registry with the same wiring, since the data
+     * fetchers and type resolvers of the reused types are kept as they were.
+     *
+     * @param previousSchema   the schema built from the previous registry
+     * @param previousRegistry the type definitions the previous schema was built from
+     * @param newRegistry      the changed type definitions
+     * @param wiring           the runtime wiring
+     *
+     * @return an executable schema
+     *
+     * @throws SchemaProblem if there are problems in assembling a schema
+     */
+    public GraphQLSchema makeExecutableSchema(GraphQLSchema previousSchema, TypeDefinitionRegistry previousRegistry, TypeDefinitionRegistry newRegistry, RuntimeWiring wiring) throws SchemaProblem {
+        Set<String> affectedNames = newRegistry.typesAffectedSince(previousRegistry);
+        List<GraphQLType> reusedTypes = new ArrayList<GraphQLType>();
+        for (GraphQLType graphQLType : previousSchema.getAllTypesAsList()) {
+            String name = graphQLType.getName();
+            // only what the new registry defines, which leaves out the introspection types
+            if (!affectedNames.contains(name) && newRegistry.getType(name) != null) {
+                reusedTypes.add(graphQLType);
+            }
+        }
+        return makeExecutableSchema(newRegistry, wiring, reusedTypes);
+    }
+
+    /**
+     * This builds an executable schema the same way as {@link #makeExecutableSchema(TypeDefinitionRegistry, RuntimeWiring)}
+     * but the given types, typically taken from a schema built earlier with the same wiring, are used as they are
+     * rather than being built again.  Every reused type must only refer to other reused types or to standard
+     * scalars, otherwise the new schema would refer back into the old one.
+     *
+     * @param typeRegistry the type definitions
+     * @param wiring       the runtime wiring
+     * @param reusedTypes  the already built types to reuse
+     *
+     * @return an executable schema
+     *
+     * @throws SchemaProblem if there are problems in assembling a schema
+     */
+    GraphQLSchema makeExecutableSchema(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, Collection<GraphQLType> reusedTypes) throws SchemaProblem {
+        BuildContext buildCtx = new BuildContext(checkTypeRegistry(typeRegistry, wiring), wiring);
+        for (GraphQLType reusedType : reusedTypes) {
+            buildCtx.reuse(reusedType);
+        }
+        return makeExecutableSchemaImpl(buildCtx);
+    }
+
+    /**
+     * This builds an executable schema the same way as {@link #makeExecutableSchema(TypeDefinitionRegistry, RuntimeWiring)}
+     * but checks and builds the types concurrently on the given pool, which pays off for schemas of thousands of
+     * types.  Nothing runs on any other pool, the common pool included.
+     *
+     * The types are built in four phases: scalars and enums, then interfaces and input objects, then object types and
+     * last unions, each phase split into batches that are built in parallel.  A type refers to the types of its
+     * fields and arguments through type references unless they were built in an earlier phase, and the schema
+     * replaces the references with the built types at the end.  The interfaces of an object type and the members of
+     * a union are always built in an earlier phase, since those cannot be references.
+     *
+     * The wiring and its {@link WiringFactory} are called from the threads of the pool, so they must be thread safe.
+     *
+     * @param typeRegistry the type definitions
+     * @param wiring       the runtime wiring
+     * @param pool         the fork join pool to check and build the types on
+     *
+     * @return an executable schema
+     *
+     * @throws SchemaProblem if there are problems in assembling a schema such as missing type resolvers or no operations defined
+     */
+    public GraphQLSchema makeExecutableSchema(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, ForkJoinPool pool) throws SchemaProblem {
+        typeRegistry = checkTypeRegistry(typeRegistry, wiring, pool);
+        String queryTypeName = queryTypeName(typeRegistry.schemaDefinition());
+        List<List<TypeDefinition>> phases = buildPhases(new BuildContext(typeRegistry, wiring), queryTypeName);
+
+        SymbolTable symbols = typeRegistry.symbols();
+        GraphQLType[] builtTypes = new GraphQLType[symbols.size()];
+        Set<GraphQLType> allTypes = new LinkedHashSet<GraphQLType>();
+        for (List<TypeDefinition> phase : phases) {
+            int batchSize = Math.max(MIN_BATCH_SIZE, phase.size() / (pool.getParallelism() * 4));
+            List<GraphQLType> types = pool.invoke(new BuildTypesTask(typeRegistry, wiring, builtTypes, phase, 0, phase.size(), batchSize));
+            // published to the next phase only once every type of this one is built
+            for (int i = 0; i < types.size(); i++) {
+                GraphQLType type = types.get(i);
+                if (type != null) {
+                    builtTypes[symbols.id(phase.get(i).getName())] = type;
+                    allTypes.add(type);
+                }
+            }
+        }
+
+        GraphQLObjectType query = (GraphQLObjectType) builtTypes[symbols.id(queryTypeName)];
+        return GraphQLSchema.newSchema().query(query).build(allTypes);
+    }
+
+    /**
+     * Builds a range of the types of a phase, splitting it in half until it is no bigger than a batch
+     */
+    private class BuildTypesTask extends RecursiveTask<List<GraphQLType>> {
 
-        SchemaDefinition schemaDefinition = buildCtx.getSchemaDefinition();
-        List<OperationTypeDefinition> operationTypes = schemaDefinition.getOperationTypeDefinitions();
+        private static final long serialVersionUID = 3166203485721307761L;
+
+        private final TypeDefinitionRegistry typeRegistry;
+        private final RuntimeWiring wiring;
+        private final GraphQLType[] builtTypes;
+        private final List<TypeDefinition> typeDefinitions;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+
+        BuildTypesTask(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, GraphQLType[] builtTypes, List<TypeDefinition> typeDefinitions, int from, int to, int batchSize) {
+            this.typeRegistry = typeRegistry;
+            this.wiring = wiring;
+            this.builtTypes = builtTypes;
+            this.typeDefinitions = typeDefinitions;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected List<GraphQLType> compute() {
+            if (to - from <= batchSize) {
+                BuildContext buildCtx = new BuildContext(typeRegistry, wiring, builtTypes);
+                List<GraphQLType> types = new ArrayList<GraphQLType>(to - from);
+                for (int i = from; i < to; i++) {
+                    types.add(buildType(buildCtx, typeDefinitions.get(i)));
+                }
+                return types;
+            }
+            int mid = (from + to) >>> 1;
+            BuildTypesTask left = new BuildTypesTask(typeRegistry, wiring, builtTypes, typeDefinitions, from, mid, batchSize);
+            left.fork();
+            List<GraphQLType> right = new BuildTypesTask(typeRegistry, wiring, builtTypes, typeDefinitions, mid, to, batchSize).compute();
+            List<GraphQLType> types = left.join();
+            types.addAll(right);
+            return types;
+        }
+    }
+
+    // the types are built from the flattened registry, so no type extension is looked at more than once
+    private TypeDefinitionRegistry checkTypeRegistry(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring) throws SchemaProblem {
+        return checkTypeRegistry(typeRegistry, wiring, null);
+    }
+
+    private TypeDefinitionRegistry checkTypeRegistry(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, ForkJoinPool pool) throws SchemaProblem {
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        TypeDefinitionRegistry flattenedRegistry = typeRegistry.flatten(errors);
+        errors.addAll(typeChecker.checkTypeRegistry(flattenedRegistry, wiring, pool));
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+        return flattenedRegistry;
+    }
+
+    private GraphQLSchema makeExecutableSchemaImpl(BuildContext buildCtx) {
 
         // pre-flight checked via checker
-        @SuppressWarnings("OptionalGetWithoutIsPresent")
-        OperationTypeDefinition queryOp =null;;
-        for(OperationTypeDefinition op:operationTypes){
-            if("query".equals(op.getName()))
-                queryOp =op;
+        String queryTypeName = queryTypeName(buildCtx.getSchemaDefinition());
+
+        Set<GraphQLType> allTypes = new LinkedHashSet<GraphQLType>();
+        for (List<TypeDefinition> phase : buildPhases(buildCtx, queryTypeName)) {
+            for (TypeDefinition typeDefinition : phase) {
+                GraphQLType type = buildType(buildCtx, typeDefinition);
+                if (type != null) {
+                    allTypes.add(type);
+                }
+            }
         }
+
+        GraphQLObjectType query = (GraphQLObjectType) buildCtx.hasOutputType(buildCtx.id(queryTypeName));
         // Optional<OperationTypeDefinition> mutationOp = operationTypes.stream().filter(op -> "mutation".equals(op.getName())).findFirst();
         // Optional<OperationTypeDefinition> subscriptionOp = operationTypes.stream().filter(op -> "subscription".equals(op.getName())).findFirst();
 
-        GraphQLObjectType query = buildOperation(buildCtx, queryOp);
-        // GraphQLObjectType mutation;
-        // GraphQLObjectType subscription;
-
         GraphQLSchema.Builder schemaBuilder = GraphQLSchema
                 .newSchema()
                 .query(query);
@@ -202,18 +483,74 @@ public class SchemaGenerator {
         //     subscription = buildOperation(buildCtx, subscriptionOp.get());
         //     schemaBuilder.subscription(subscription);
         // }
-        return schemaBuilder.build();
+
+        // the schema replaces the type references the built types hold with the types themselves
+        return schemaBuilder.build(allTypes);
     }
 
-    private GraphQLObjectType buildOperation(BuildContext buildCtx, OperationTypeDefinition operation) {
-        Type type = operation.getType();
+    private static String queryTypeName(SchemaDefinition schemaDefinition) {
+        String queryTypeName = null;
+        for (OperationTypeDefinition op : schemaDefinition.getOperationTypeDefinitions()) {
+            if ("query".equals(op.getName())) {
+                queryTypeName = TypeInfo.typeInfo(op.getType()).getName();
+            }
+        }
+        return queryTypeName;
+    }
 
-        return buildOutputType(buildCtx, type);
+    /**
+     * Works through the types reachable from the query type, without going past the types the context already has,
+     * and splits those left to build into the order they must be built in: scalars and enums, then interfaces and
+     * input objects, then object types and last unions.  A type refers to types that are not built yet through type
+     * references, but the interfaces of an object type and the members of a union must be built types, and this
+     * order sees to that.  So each type is built on its own with no recursion, however deep the schema.
+     */
+    private List<List<TypeDefinition>> buildPhases(BuildContext buildCtx, String queryTypeName) {
+        TypeDefinitionRegistry typeRegistry = buildCtx.getTypeRegistry();
+        List<List<TypeDefinition>> phases = new ArrayList<List<TypeDefinition>>();
+        for (int i = 0; i < 4; i++) {
+            phases.add(new ArrayList<TypeDefinition>());
+        }
+        boolean[] seen = new boolean[typeRegistry.symbols().size()];
+        Deque<String> work = new ArrayDeque<String>();
+        work.add(queryTypeName);
+        while (!work.isEmpty()) {
+            String typeName = work.poll();
+            int id = buildCtx.id(typeName);
+            if (id >= seen.length || seen[id]) {
+                continue;
+            }
+            seen[id] = true;
+            TypeDefinition typeDefinition = buildCtx.getTypeDefinition(id);
+            if (typeDefinition instanceof InputObjectTypeDefinition ? buildCtx.hasInputType(id) != null : buildCtx.hasOutputType(id) != null) {
+                // reused, as are the types it refers to
+                continue;
+            }
+            if (typeDefinition instanceof ScalarTypeDefinition || typeDefinition instanceof EnumTypeDefinition) {
+                phases.get(0).add(typeDefinition);
+            } else if (typeDefinition instanceof InterfaceTypeDefinition || typeDefinition instanceof InputObjectTypeDefinition) {
+                phases.get(1).add(typeDefinition);
+            } else if (typeDefinition instanceof ObjectTypeDefinition) {
+                phases.get(2).add(typeDefinition);
+            } else if (typeDefinition instanceof UnionTypeDefinition) {
+                phases.get(3).add(typeDefinition);
+            }
+            work.addAll(typeRegistry.referencedTypes(typeName));
+        }
+        return phases;
     }
 
+    private GraphQLType buildType(BuildContext buildCtx, TypeDefinition typeDefinition) {
+        TypeName typeName = new TypeName(typeDefinition.getName());
+        if (typeDefinition instanceof InputObjectTypeDefinition) {
+            return buildInputType(buildCtx, typeName);
+        }
+        return this.<GraphQLOutputType>buildOutputType(buildCtx, typeName);
+    }
 
     /**
-     * This is the main recursive spot that builds out the various forms of Output types
+     * This is the main spot that builds out the various forms of Output types.  Only the type asked for is built, the
+     * types it refers to are either built already or put in as type references.
      *
      * @param buildCtx the context we need to work out what we are doing
      * @param rawType  the type to be built
@@ -222,21 +559,22 @@ public class SchemaGenerator {
     @SuppressWarnings("unchecked")
     private <T extends GraphQLOutputType> T buildOutputType(BuildContext buildCtx, Type rawType) {
 
-        TypeDefinition typeDefinition = buildCtx.getTypeDefinition(rawType);
         TypeInfo typeInfo = TypeInfo.typeInfo(rawType);
+        int id = buildCtx.id(typeInfo.getName());
+        TypeDefinition typeDefinition = buildCtx.getTypeDefinition(id);
 
-        GraphQLOutputType outputType = buildCtx.hasOutputType(typeDefinition);
+        GraphQLOutputType outputType = buildCtx.hasOutputType(id);
         if (outputType != null) {
-            return typeInfo.decorate(outputType);
+            return buildCtx.decorate(id, typeInfo, outputType);
         }
 
-        if (buildCtx.stackContains(typeInfo)) {
-            // we have circled around so put in a type reference and fix it up later
-            // otherwise we will go into an infinite loop
-            return typeInfo.decorate(new GraphQLTypeReference(typeInfo.getName()));
+        if (buildCtx.isBuilding()) {
+            // a type that is not built yet, so put in a type reference which the schema replaces with the type once
+            // every type is built
+            return buildCtx.decorate(id, typeInfo, buildCtx.typeReference(id));
         }
 
-        buildCtx.push(typeInfo);
+        buildCtx.startBuilding(id);
 
         if (typeDefinition instanceof ObjectTypeDefinition) {
             outputType = buildObjectType(buildCtx, (ObjectTypeDefinition) typeDefinition);
@@ -253,26 +591,27 @@ public class SchemaGenerator {
             throw new NotAnOutputTypeError(typeDefinition);
         }
 
-        buildCtx.put(outputType);
-        buildCtx.pop();
-        return (T) typeInfo.decorate(outputType);
+        buildCtx.put(id, outputType);
+        buildCtx.doneBuilding();
+        return buildCtx.decorate(id, typeInfo, outputType);
     }
 
     private GraphQLInputType buildInputType(BuildContext buildCtx, Type rawType) {
 
-        TypeDefinition typeDefinition = buildCtx.getTypeDefinition(rawType);
         TypeInfo typeInfo = TypeInfo.typeInfo(rawType);
-        GraphQLInputType inputType = buildCtx.hasInputType(typeDefinition);
+        int id = buildCtx.id(typeInfo.getName());
+        TypeDefinition typeDefinition = buildCtx.getTypeDefinition(id);
+        GraphQLInputType inputType = buildCtx.hasInputType(id);
         if (inputType != null) {
-            return typeInfo.decorate(inputType);
+            return buildCtx.decorate(id, typeInfo, inputType);
         }
 
-        if (buildCtx.stackContains(typeInfo)) {
-            // we have circled around so put in a type reference and fix it later
-            return typeInfo.decorate(new GraphQLTypeReference(typeInfo.getName()));
+        if (buildCtx.isBuilding()) {
+            // a type that is not built yet, so put in a type reference which the schema replaces later
+            return buildCtx.decorate(id, typeInfo, buildCtx.typeReference(id));
         }
 
-        buildCtx.push(typeInfo);
+        buildCtx.startBuilding(id);
 
         if (typeDefinition instanceof InputObjectTypeDefinition) {
             inputType = buildInputObjectType(buildCtx, (InputObjectTypeDefinition) typeDefinition);
@@ -285,9 +624,9 @@ public class SchemaGenerator {
             throw new NotAnInputTypeError(typeDefinition);
         }
 
-        buildCtx.put(inputType);
-        buildCtx.pop();
-        return typeInfo.decorate(inputType);
+        buildCtx.put(id, inputType);
+        buildCtx.doneBuilding();
+        return buildCtx.decorate(id, typeInfo, inputType);
     }
 
     private GraphQLObjectType buildObjectType(BuildContext buildCtx, ObjectTypeDefinition typeDefinition) {
@@ -296,113 +635,34 @@ public class SchemaGenerator {
         builder.name(typeDefinition.getName());
         builder.description(buildDescription(typeDefinition));
 
-        List<TypeExtensionDefinition> typeExtensions = getTypeExtensionsOf(typeDefinition, buildCtx);
-
-        buildObjectTypeFields(buildCtx, typeDefinition, builder, typeExtensions);
+        buildObjectTypeFields(buildCtx, typeDefinition, builder);
 
-        buildObjectTypeInterfaces(buildCtx, typeDefinition, builder, typeExtensions);
+        buildObjectTypeInterfaces(buildCtx, typeDefinition, builder);
 
         return builder.build();
     }
 
-    private void buildObjectTypeFields(BuildContext buildCtx, ObjectTypeDefinition typeDefinition, GraphQLObjectType.Builder builder, List<TypeExtensionDefinition> typeExtensions) {
-        Map<String, GraphQLFieldDefinition> fieldDefinitions = new LinkedHashMap<String, GraphQLFieldDefinition>();
-
+    // the registry is flattened, so the definition already holds the fields and interfaces of its type extensions
+    private void buildObjectTypeFields(BuildContext buildCtx, ObjectTypeDefinition typeDefinition, GraphQLObjectType.Builder builder) {
         //JAVA1.8TOPORT
-        // typeDefinition.getFieldDefinitions().forEach(fieldDef -> {
-        //     GraphQLFieldDefinition newFieldDefinition = buildField(buildCtx, typeDefinition, fieldDef);
-        //     fieldDefinitions.put(newFieldDefinition.getName(), newFieldDefinition);
-        // });
+        // typeDefinition.getFieldDefinitions().forEach(fieldDef ->
+        //         builder.field(buildField(buildCtx, typeDefinition, fieldDef)));
 
         List<FieldDefinition> fieldDefs=typeDefinition.getFieldDefinitions();
         for(FieldDefinition fieldDef: fieldDefs){
-            GraphQLFieldDefinition newFieldDefinition = buildField(buildCtx, typeDefinition, fieldDef);
-            fieldDefinitions.put(newFieldDefinition.getName(), newFieldDefinition);            
-        }
-
-
-        // an object consists of the fields it gets from its definition AND its type extensions
-        //JAVA1.8TOPORT
-        // typeExtensions.forEach(typeExt -> typeExt.getFieldDefinitions().forEach(fieldDef -> {
-        //     GraphQLFieldDefinition newFieldDefinition = buildField(buildCtx, typeDefinition, fieldDef);
-        //     //
-        //     // de-dupe here - pre-flight checks ensure all dupes are of the same type
-        //     if (!fieldDefinitions.containsKey(newFieldDefinition.getName())) {
-        //         fieldDefinitions.put(newFieldDefinition.getName(), newFieldDefinition);
-        //     }
-        // }));
-
-        for(TypeExtensionDefinition typeExt:typeExtensions){
-            List<FieldDefinition>  fieldsDefs= typeExt.getFieldDefinitions();
-            for(FieldDefinition fieldDef: fieldsDefs){
-                GraphQLFieldDefinition newFieldDefinition = buildField(buildCtx, typeDefinition, fieldDef);
-                //
-                // de-dupe here - pre-flight checks ensure all dupes are of the same type
-                if (!fieldDefinitions.containsKey(newFieldDefinition.getName())) {
-                    fieldDefinitions.put(newFieldDefinition.getName(), newFieldDefinition);
-                }                
-            }
-
-        }
-        //JAVA1.8TOPORT
-        //fieldDefinitions.values().forEach(builder::field);
-        Collection<GraphQLFieldDefinition> fieldDefValuesColl =fieldDefinitions.values();
-        Iterator<GraphQLFieldDefinition> fieldDefValueIterator=fieldDefValuesColl.iterator();
-        while(fieldDefValueIterator.hasNext()){
-            GraphQLFieldDefinition fieldDefValue= fieldDefValueIterator.next();
-            builder.field(fieldDefValue);
+            builder.field(buildField(buildCtx, typeDefinition, fieldDef));
         }
     }
 
-    private void buildObjectTypeInterfaces(BuildContext buildCtx, ObjectTypeDefinition typeDefinition, GraphQLObjectType.Builder builder, List<TypeExtensionDefinition> typeExtensions) {
-        Map<String, GraphQLInterfaceType> interfaces = new LinkedHashMap<String, GraphQLInterfaceType>();
-        // typeDefinition.getImplements().forEach(type -> {
-        //     GraphQLInterfaceType newInterfaceType = buildOutputType(buildCtx, type);
-        //     interfaces.put(newInterfaceType.getName(), newInterfaceType);
-        // });
+    private void buildObjectTypeInterfaces(BuildContext buildCtx, ObjectTypeDefinition typeDefinition, GraphQLObjectType.Builder builder) {
+        //JAVA1.8TOPORT forEach
+        // typeDefinition.getImplements().forEach(type ->
+        //         builder.withInterface(buildOutputType(buildCtx, type)));
         List<Type> lt= typeDefinition.getImplements();
         for(Type type: lt){
-        //JAVA1.8TOPORT forEach
-        GraphQLInterfaceType newInterfaceType = buildOutputType(buildCtx, type);
-        interfaces.put(newInterfaceType.getName(), newInterfaceType);
-        }
-
-        // an object consists of the interfaces it gets from its definition AND its type extensions
-        //JAVA1.8TOPORT forEach
-        // typeExtensions.forEach(typeExt -> typeExt.getImplements().forEach(type -> {
-        //     GraphQLInterfaceType interfaceType = buildOutputType(buildCtx, type);
-        //     //
-        //     // de-dupe here - pre-flight checks ensure all dupes are of the same type
-        //     if (!interfaces.containsKey(interfaceType.getName())) {
-        //         interfaces.put(interfaceType.getName(), interfaceType);
-        //     }
-        // }));
-        //List<TypeExtensionDefinition> typeExt= typeExtensions.
-        for(TypeExtensionDefinition typeExt: typeExtensions){
-            List<Type> types=typeExt.getImplements();
-            for(Type type: types){
             GraphQLInterfaceType interfaceType = buildOutputType(buildCtx, type);
-            //
-            // de-dupe here - pre-flight checks ensure all dupes are of the same type
-            if (!interfaces.containsKey(interfaceType.getName())) {
-                interfaces.put(interfaceType.getName(), interfaceType);
-                }   
-            }
+            builder.withInterface(interfaceType);
         }
-
-        //interfaces.values().forEach(builder::withInterface);
-
-        Collection<GraphQLInterfaceType> interfaceValues =interfaces.values();
-         Iterator<GraphQLInterfaceType>  interfaceIterator=interfaceValues.iterator();
-         while(interfaceIterator.hasNext()){
-            GraphQLInterfaceType gqlInterfaceType =interfaceIterator.next();
-            builder.withInterface(gqlInterfaceType);
-         }
-    }
-
-    private List<TypeExtensionDefinition> getTypeExtensionsOf(ObjectTypeDefinition objectTypeDefinition, BuildContext buildCtx) {
-        List<TypeExtensionDefinition> typeExtensionDefinitions = buildCtx.typeRegistry.typeExtensions().get(objectTypeDefinition.getName());
-        return (List<TypeExtensionDefinition>) (typeExtensionDefinitions == null ? Collections.emptyList() : typeExtensionDefinitions);
     }
 
     private GraphQLInterfaceType buildInterfaceType(BuildContext buildCtx, InterfaceTypeDefinition typeDefinition) {
@@ -431,13 +691,9 @@ public class SchemaGenerator {
 
         List<Type> mts=typeDefinition.getMemberTypes();
         for(Type mt:mts){
-            GraphQLOutputType outputType = buildOutputType(buildCtx, mt);
-            if (outputType instanceof GraphQLTypeReference) {
-                //builder.possibleTypes((GraphQLTypeReference) outputType);
-            } else {
-                builder.possibleType((GraphQLObjectType) outputType);
-            }            
-
+            // the members are object types, which are built before any union, so never type references
+            GraphQLObjectType objectType = buildOutputType(buildCtx, mt);
+            builder.possibleType(objectType);
         }
         return builder.build();
     }
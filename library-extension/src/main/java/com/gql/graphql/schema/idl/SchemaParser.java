@@ -1,24 +1,36 @@
 package com.gql.graphql.schema.idl;
 
 import graphql.GraphQLError;
-import graphql.InvalidSyntaxError;
 import graphql.language.Definition;
 import graphql.language.Document;
-import graphql.language.SourceLocation;
-import graphql.parser.Parser;
 import com.gql.graphql.schema.idl.errors.SchemaProblem;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import org.antlr.v4.runtime.RecognitionException;
-import org.antlr.v4.runtime.misc.ParseCancellationException;
+import static graphql.Assert.assertNotNull;
 
 /**
  * This can take a graphql schema definition and parse it into a {@link TypeDefinitionRegistry} of
@@ -27,10 +39,51 @@ import org.antlr.v4.runtime.misc.ParseCancellationException;
 public class SchemaParser {
     
     
-    //private static final Logger _LOG = new Logger(SchemaParser.class);
+    private static final Logger LOG = Logger.getLogger(SchemaParser.class.getName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String SCHEMA_FILE_EXTENSION = ".graphqls";
+
+    private static final String WARM_UP_SCHEMA = "warm-up.graphqls";
+
+    private final DocumentParser documentParser = new DocumentParser();
+
+    private final SchemaParserOptions options;
+
+    public SchemaParser() {
+        this(SchemaParserOptions.defaultOptions());
+    }
+
+    public SchemaParser(SchemaParserOptions options) {
+        this.options = assertNotNull(options, "You must provide schema parser options");
+    }
 
     /**
-     * Parse a file of schema definitions and create a {@link TypeDefinitionRegistry}
+     * Parses a bundled schema that uses every part of the schema language so that the first real schema is
+     * parsed at close to steady state speed.  For the ANTLR parser this fills the prediction caches which are
+     * shared by every parser in the JVM.  Call this once at start up, say on a background thread.
+     */
+    public void warmUp() {
+        InputStream inputStream = SchemaParser.class.getResourceAsStream(WARM_UP_SCHEMA);
+        if (inputStream == null) {
+            throw new IllegalStateException("Cannot find the warm up schema " + WARM_UP_SCHEMA);
+        }
+        parse(new InputStreamReader(inputStream, UTF_8), WARM_UP_SCHEMA);
+    }
+
+    /**
+     * Each thread that parses with the ANTLR parser keeps its own lexer and parser for the next parse, and they are
+     * held for as long as the thread lives.  On pooled threads of a container, where the thread outlives the
+     * application and would keep its classes loaded, call this on each such thread once it is done parsing, say when
+     * the application is undeployed.  The next parse on the thread simply makes a new lexer and parser.
+     */
+    public static void clearThreadCaches() {
+        DocumentParser.clearThreadCaches();
+    }
+
+    /**
+     * Parse a UTF-8 encoded file of schema definitions and create a {@link TypeDefinitionRegistry}
      *
      * @param file the file to parse
      *
@@ -39,15 +92,196 @@ public class SchemaParser {
      * @throws SchemaProblem if there are problems compiling the schema definitions
      */
     public TypeDefinitionRegistry parse(final File file) throws SchemaProblem {
+        return parse(file, UTF_8);
+    }
+
+    /**
+     * Parse a file of schema definitions in the given charset and create a {@link TypeDefinitionRegistry}.  The
+     * file is memory mapped and decoded straight into the lexer, the mapping is only referenced for the
+     * length of the parse.
+     *
+     * @param file    the file to parse
+     * @param charset the charset the file is encoded in
+     *
+     * @return registry of type definitions
+     *
+     * @throws SchemaProblem if there are problems compiling the schema definitions
+     */
+    public TypeDefinitionRegistry parse(final File file, final Charset charset) throws SchemaProblem {
+        return parse(file.toPath(), charset, null);
+    }
+
+    /**
+     * Lazily parse a UTF-8 encoded file of schema definitions.  The file is memory mapped and quickly scanned for
+     * the name, kind and byte range of every definition, and a definition is only parsed the first time it is looked
+     * up in the returned registry, so a large schema of which only a few types are used costs little to load.
+     *
+     * The scan checks the structure of the file and that nothing is defined twice.  A syntax error within a
+     * definition is only found when it is parsed, so the lookups of the registry can throw a {@link SchemaProblem}.
+     * Definitions are parsed with the {@link SchemaParserOptions.ParserType#SDL} parser whatever the options say.
+     *
+     * To build a schema from a few of the types, {@link TypeDefinitionRegistry#prune(java.util.Collection) prune} the
+     * registry first, which parses only the types it keeps.  Everything that needs the whole registry parses every
+     * definition that is left: freezing, flattening, structural hashes, diffs, merges and so building a schema from
+     * the unpruned registry.
+     *
+     * @param file the file to parse
+     *
+     * @return registry of type definitions
+     *
+     * @throws SchemaProblem if there are problems scanning the schema definitions
+     */
+    public TypeDefinitionRegistry parseLazily(final File file) throws SchemaProblem {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The schema file is too large to parse lazily : " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new TypeDefinitionRegistry(DefinitionIndex.scan(buffer, null));
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Parse a number of UTF-8 encoded files of schema definitions concurrently and merge them into one
+     * {@link TypeDefinitionRegistry}.
+     *
+     * Each file is parsed as its own task on a fork join pool and the resulting registries are merged pairwise as
+     * the tasks complete, so the merging is spread across the pool as well.  Problems from every file, including types
+     * redefined across files, are reported together and name the file they came from.
+     *
+     * @param paths the files to parse
+     *
+     * @return registry of type definitions from all the files
+     *
+     * @throws SchemaProblem if there are problems compiling or merging the schema definitions
+     */
+    public TypeDefinitionRegistry parseAll(final Collection<Path> paths) throws SchemaProblem {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return parseAll(paths, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parse a number of UTF-8 encoded files of schema definitions on the given pool and merge them into one
+     * {@link TypeDefinitionRegistry}
+     *
+     * @param paths the files to parse
+     * @param pool  the fork join pool to parse and merge on
+     *
+     * @return registry of type definitions from all the files
+     *
+     * @throws SchemaProblem if there are problems compiling or merging the schema definitions
+     *
+     * @see #parseAll(Collection)
+     */
+    public TypeDefinitionRegistry parseAll(final Collection<Path> paths, final ForkJoinPool pool) throws SchemaProblem {
+        if (paths.isEmpty()) {
+            return new TypeDefinitionRegistry();
+        }
+        ParsedFiles parsedFiles = pool.invoke(new ParseFilesTask(new ArrayList<Path>(paths), 0, paths.size()));
+        if (!parsedFiles.errors.isEmpty()) {
+            throw new SchemaProblem(parsedFiles.errors);
+        }
+        return parsedFiles.typeRegistry;
+    }
+
+    /**
+     * Parse every {@code .graphqls} file found under a directory concurrently and merge them into one
+     * {@link TypeDefinitionRegistry}.  Files are merged in path order so the results are repeatable.
+     *
+     * @param directory the directory to scan
+     *
+     * @return registry of type definitions from all the files
+     *
+     * @throws SchemaProblem if there are problems compiling or merging the schema definitions
+     *
+     * @see #parseAll(Collection)
+     */
+    public TypeDefinitionRegistry parseDirectory(final Path directory) throws SchemaProblem {
+        return parseAll(schemaFiles(directory));
+    }
+
+    /**
+     * Loads the {@code .graphqls} files found under a directory from a snapshot written by {@link SchemaSnapshot}
+     * when that was made from exactly these files, and otherwise parses them as {@link #parseDirectory(Path)} does.
+     * A snapshot that cannot be read, or is truncated or corrupt, is logged and the files are parsed instead.
+     *
+     * @param directory    the directory to scan
+     * @param snapshotFile the snapshot to try first
+     *
+     * @return registry of type definitions from all the files
+     *
+     * @throws SchemaProblem if there are problems compiling or merging the schema definitions
+     */
+    public TypeDefinitionRegistry parseDirectory(final Path directory, final Path snapshotFile) throws SchemaProblem {
+        List<Path> paths = schemaFiles(directory);
         try {
-            return parse(new FileReader(file));
-        } catch (final FileNotFoundException e) {
+            TypeDefinitionRegistry typeRegistry = SchemaSnapshot.read(snapshotFile, SchemaSnapshot.fingerprint(paths));
+            if (typeRegistry != null) {
+                return typeRegistry;
+            }
+        } catch (final IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Cannot load the schema snapshot " + snapshotFile + ", parsing the schema files instead", e);
+        }
+        return parseAll(paths);
+    }
+
+    /**
+     * @return every {@code .graphqls} file under the directory in path order
+     */
+    static List<Path> schemaFiles(final Path directory) {
+        final List<Path> paths = new ArrayList<Path>();
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isSchemaFile(file)) {
+                        paths.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
             throw new RuntimeException(e);
         }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    static boolean isSchemaFile(final Path path) {
+        return path.getFileName().toString().endsWith(SCHEMA_FILE_EXTENSION);
     }
 
     /**
-     * Parse a reader of schema definitions and create a {@link TypeDefinitionRegistry}
+     * Parses a UTF-8 encoded file naming every source location after the file
+     */
+    TypeDefinitionRegistry parseSchemaFile(final Path path) throws SchemaProblem {
+        return parse(path, UTF_8, path.toString());
+    }
+
+    private TypeDefinitionRegistry parse(final Path path, final Charset charset, final String sourceName) throws SchemaProblem {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // too big to map in one go so just stream it
+                return parse(Channels.newReader(channel, charset.newDecoder(), -1), sourceName);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return parse(new ByteBufferReader(buffer, charset.newDecoder()), sourceName);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Parse a reader of schema definitions and create a {@link TypeDefinitionRegistry}.  The reader is
+     * streamed straight into the lexer so the schema text is never held in memory as a whole.
      *
      * @param reader the reader to parse
      *
@@ -56,46 +290,104 @@ public class SchemaParser {
      * @throws SchemaProblem if there are problems compiling the schema definitions
      */
     public TypeDefinitionRegistry parse(final Reader reader) throws SchemaProblem {
+        return parse(reader, null);
+    }
+
+    private TypeDefinitionRegistry parse(final Reader reader, final String sourceName) throws SchemaProblem {
         try (Reader input = reader) {
-            return parse(read(input));
+            if (options.getParserType() == SchemaParserOptions.ParserType.SDL) {
+                return new SdlParser(input, sourceName).parse();
+            }
+            return buildRegistry(documentParser.parseDocument(input, sourceName));
         } catch (final IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Parse a string of schema definitions and create a {@link TypeDefinitionRegistry}
+     * Parse a stream of UTF-8 encoded schema definitions and create a {@link TypeDefinitionRegistry}
      *
-     * @param schemaInput the schema string to parse
+     * @param inputStream the stream to parse
      *
      * @return registry of type definitions
      *
      * @throws SchemaProblem if there are problems compiling the schema definitions
      */
-    public TypeDefinitionRegistry parse(String schemaInput) throws SchemaProblem 
-    {
-        Document document=null;
-        try {
-            final Parser parser = new Parser();
-            document = parser.parseDocument(schemaInput);
+    public TypeDefinitionRegistry parse(final InputStream inputStream) throws SchemaProblem {
+        return parse(inputStream, UTF_8);
+    }
 
-           
-        } catch (final Exception e) {
-            //throw new handleParseException(e);
-            
-            RecognitionException recognitionException = (RecognitionException) e.getCause();
-            SourceLocation sourceLocation = new SourceLocation(recognitionException.getOffendingToken().getLine(), recognitionException.getOffendingToken().getCharPositionInLine());
-        }
-        return buildRegistry(document);
+    /**
+     * Parse a stream of schema definitions in the given charset and create a {@link TypeDefinitionRegistry}
+     *
+     * @param inputStream the stream to parse
+     * @param charset     the charset the stream is encoded in
+     *
+     * @return registry of type definitions
+     *
+     * @throws SchemaProblem if there are problems compiling the schema definitions
+     */
+    public TypeDefinitionRegistry parse(final InputStream inputStream, final Charset charset) throws SchemaProblem {
+        return parse(new InputStreamReader(inputStream, charset));
+    }
+
+    /**
+     * Parse a channel of UTF-8 encoded schema definitions and create a {@link TypeDefinitionRegistry}
+     *
+     * @param channel the channel to parse
+     *
+     * @return registry of type definitions
+     *
+     * @throws SchemaProblem if there are problems compiling the schema definitions
+     */
+    public TypeDefinitionRegistry parse(final ReadableByteChannel channel) throws SchemaProblem {
+        return parse(channel, UTF_8);
+    }
 
+    /**
+     * Parse a channel of schema definitions in the given charset and create a {@link TypeDefinitionRegistry}
+     *
+     * @param channel the channel to parse
+     * @param charset the charset the channel is encoded in
+     *
+     * @return registry of type definitions
+     *
+     * @throws SchemaProblem if there are problems compiling the schema definitions
+     */
+    public TypeDefinitionRegistry parse(final ReadableByteChannel channel, final Charset charset) throws SchemaProblem {
+        return parse(Channels.newReader(channel, charset.newDecoder(), -1));
+    }
+
+    /**
+     * Parse a string of schema definitions and create a {@link TypeDefinitionRegistry}.  If the options name a
+     * {@link ParsedSchemaCache} then text that has been parsed before is served from there, and the registry
+     * returned is {@link TypeDefinitionRegistry#freeze() frozen} and shared with every other parse of the same text.
+     *
+     * @param schemaInput the schema string to parse
+     *
+     * @return registry of type definitions
+     *
+     * @throws SchemaProblem if there are problems compiling the schema definitions
+     */
+    public TypeDefinitionRegistry parse(String schemaInput) throws SchemaProblem {
+        ParsedSchemaCache cache = options.getCache();
+        if (cache == null) {
+            return parseString(schemaInput);
+        }
+        ParsedSchemaCache.Key key = cache.keyOf(schemaInput);
+        TypeDefinitionRegistry typeRegistry = cache.get(key);
+        if (typeRegistry == null) {
+            typeRegistry = cache.put(key, parseString(schemaInput));
+        }
+        return typeRegistry;
     }
 
-//     private SchemaProblem handleParseException(ParseCancellationException e) throws RuntimeException {
-//         RecognitionException recognitionException = (RecognitionException) e.getCause();
-//         SourceLocation sourceLocation = new SourceLocation(recognitionException.getOffendingToken().getLine(), recognitionException.getOffendingToken().getCharPositionInLine());
-//         InvalidSyntaxError invalidSyntaxError = new InvalidSyntaxError(sourceLocation);
-//         return new SchemaProblem(Collections.singletonList(invalidSyntaxError));
-//     }
+    private TypeDefinitionRegistry parseString(String schemaInput) throws SchemaProblem {
+        if (options.getParserType() == SchemaParserOptions.ParserType.SDL) {
+            return parse(new StringReader(schemaInput), null);
+        }
+        return buildRegistry(documentParser.parseDocument(schemaInput));
+    }
 
     private TypeDefinitionRegistry buildRegistry(final Document document) {
         final List<GraphQLError> errors = new ArrayList<GraphQLError>();
@@ -103,7 +395,10 @@ public class SchemaParser {
         final List<Definition> definitions = document.getDefinitions();
         for (final Definition definition : definitions) {
             //JAVA1.8TOPORT ifPresent
-            typeRegistry.add(definition);//.ifPresent(errors::add);
+            GraphQLError error = typeRegistry.add(definition);
+            if (error != null) {
+                errors.add(error);
+            }
         }
         if (errors.size() > 0) {
             throw new SchemaProblem(errors);
@@ -112,13 +407,60 @@ public class SchemaParser {
         }
     }
 
-    private String read(final Reader reader) throws IOException {
-        final char[] buffer = new char[1024 * 4];
-        final StringWriter sw = new StringWriter();
-        int n;
-        while (-1 != (n = reader.read(buffer))) {
-            sw.write(buffer, 0, n);
+    private static class ParsedFiles {
+        private final TypeDefinitionRegistry typeRegistry;
+        private final List<GraphQLError> errors;
+
+        ParsedFiles(TypeDefinitionRegistry typeRegistry, List<GraphQLError> errors) {
+            this.typeRegistry = typeRegistry;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * Parses a range of files, splitting it in half until a single file is left.  The two halves are then merged
+     * left into right so that redefinitions are always reported against the file that came first.
+     */
+    private class ParseFilesTask extends RecursiveTask<ParsedFiles> {
+
+        private static final long serialVersionUID = 5460321187637408391L;
+
+        private final List<Path> paths;
+        private final int from;
+        private final int to;
+
+        ParseFilesTask(List<Path> paths, int from, int to) {
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ParsedFiles compute() {
+            if (to - from == 1) {
+                return parseFile(paths.get(from));
+            }
+            int mid = (from + to) >>> 1;
+            ParseFilesTask left = new ParseFilesTask(paths, from, mid);
+            left.fork();
+            ParsedFiles right = new ParseFilesTask(paths, mid, to).compute();
+            ParsedFiles merged = left.join();
+
+            merged.errors.addAll(right.errors);
+            merged.typeRegistry.mergeReportingErrors(right.typeRegistry, merged.errors);
+            return merged;
+        }
+
+        private ParsedFiles parseFile(Path path) {
+            List<GraphQLError> errors = new ArrayList<GraphQLError>();
+            TypeDefinitionRegistry typeRegistry;
+            try {
+                typeRegistry = parseSchemaFile(path);
+            } catch (final SchemaProblem e) {
+                typeRegistry = new TypeDefinitionRegistry();
+                errors.addAll(e.getErrors());
+            }
+            return new ParsedFiles(typeRegistry, errors);
         }
-        return sw.toString();
     }
 }
@@ -0,0 +1,99 @@
+package com.gql.graphql.schema.idl;
+
+import static graphql.Assert.assertNotNull;
+
+/**
+ * Options that control how a {@link SchemaParser} goes about parsing schema definitions
+ */
+public class SchemaParserOptions {
+
+    /**
+     * The parsers that can turn schema text into definitions
+     */
+    public enum ParserType {
+        /**
+         * The graphql-java ANTLR grammar, which reads the whole graphql language
+         */
+        ANTLR,
+        /**
+         * A hand written parser of just the schema definition language.  It is faster, allocates less and reports
+         * syntax errors with the location and the token that was expected.
+         */
+        SDL
+    }
+
+    private final ParsedSchemaCache cache;
+    private final ParserType parserType;
+
+    private SchemaParserOptions(ParsedSchemaCache cache, ParserType parserType) {
+        this.cache = cache;
+        this.parserType = parserType;
+    }
+
+    /**
+     * @return the cache of parsed schemas to use or null if parsed schemas are not cached
+     */
+    public ParsedSchemaCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the parser used to read schema text
+     */
+    public ParserType getParserType() {
+        return parserType;
+    }
+
+    /**
+     * @return the options a {@link SchemaParser} uses when none are given
+     */
+    public static SchemaParserOptions defaultOptions() {
+        return newOptions().build();
+    }
+
+    /**
+     * @return a builder of schema parser options
+     */
+    public static Builder newOptions() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ParsedSchemaCache cache;
+        private ParserType parserType = ParserType.ANTLR;
+
+        private Builder() {
+        }
+
+        /**
+         * Parsed schema strings will be kept in and served from this cache.  Only {@link SchemaParser#parse(String)}
+         * consults the cache, the streaming forms never hold the whole text to hash.  The registries it returns are then
+         * frozen.
+         *
+         * @param cache the cache to use or null to turn caching off
+         *
+         * @return this builder
+         */
+        public Builder cache(ParsedSchemaCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @param parserType the parser to read schema text with, {@link ParserType#ANTLR} by default
+         *
+         * @return this builder
+         */
+        public Builder parserType(ParserType parserType) {
+            this.parserType = assertNotNull(parserType, "You must provide a parser type");
+            return this;
+        }
+
+        /**
+         * @return the built options
+         */
+        public SchemaParserOptions build() {
+            return new SchemaParserOptions(cache, parserType);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.AstComparator;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static graphql.Assert.assertNotNull;
+
+/**
+ * This keeps an executable schema up to date with a directory of {@code .graphqls} files.  Once {@link #start()}ed
+ * a {@link WatchService} reports changed files and only those are parsed again.  The definitions they held before
+ * and after are compared and only the types that changed, plus the types that refer to them directly or
+ * indirectly, are built again.  Every other type is carried over as is from the previous schema so the cost of a
+ * reload follows the size of the edit rather than the size of the schema.
+ *
+ * If a reload fails, say on a syntax error, the previous schema stays in place and the listeners are told, and
+ * the watcher goes on watching.  A listener that throws is logged and does not keep the others from being told.
+ */
+public class SchemaReloader implements Closeable {
+
+    /**
+     * Told about every reload done by the watcher
+     */
+    public interface Listener {
+
+        /**
+         * @param schema the newly built schema
+         */
+        void schemaReloaded(GraphQLSchema schema);
+
+        /**
+         * @param e why the reload failed, the previous schema is still in place
+         */
+        void reloadFailed(RuntimeException e);
+    }
+
+    private static final Logger LOG = Logger.getLogger(SchemaReloader.class.getName());
+
+    // editors tend to write a file in several steps so wait for things to settle before reloading
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Path directory;
+    private final RuntimeWiring wiring;
+    private final SchemaParser schemaParser;
+    private final SchemaGenerator schemaGenerator = new SchemaGenerator();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    private Map<Path, SchemaFile> files = new TreeMap<Path, SchemaFile>();
+    // type name -> names of the types referring to it -> how many files hold such a reference
+    private final Map<String, Map<String, Integer>> referrers = new HashMap<String, Map<String, Integer>>();
+    private TypeDefinitionRegistry typeRegistry;
+    private volatile GraphQLSchema schema;
+
+    private WatchService watchService;
+    private Thread watcher;
+
+    public SchemaReloader(Path directory, RuntimeWiring wiring) {
+        this(directory, wiring, new SchemaParser());
+    }
+
+    public SchemaReloader(Path directory, RuntimeWiring wiring, SchemaParser schemaParser) {
+        this.directory = assertNotNull(directory, "You must provide a schema directory").toAbsolutePath().normalize();
+        this.wiring = assertNotNull(wiring, "You must provide a runtime wiring");
+        this.schemaParser = assertNotNull(schemaParser, "You must provide a schema parser");
+    }
+
+    /**
+     * @return the current schema or null if none has been loaded yet
+     */
+    public GraphQLSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the type definitions behind the current schema
+     */
+    public synchronized TypeDefinitionRegistry getTypeRegistry() {
+        return typeRegistry;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(assertNotNull(listener, "You must provide a listener"));
+    }
+
+    /**
+     * Parses every schema file in the directory and builds the schema from scratch
+     *
+     * @return the built schema
+     *
+     * @throws SchemaProblem if the files cannot be parsed or built into a schema
+     */
+    public synchronized GraphQLSchema load() throws SchemaProblem {
+        files = new TreeMap<Path, SchemaFile>();
+        referrers.clear();
+        typeRegistry = null;
+        schema = null;
+        return reload(SchemaParser.schemaFiles(directory));
+    }
+
+    /**
+     * Brings the schema up to date with the given files, which may have been added, changed or deleted.  This is
+     * what the watcher calls but it can also be called directly when change notification comes from elsewhere.
+     *
+     * @param changedPaths the schema files that changed
+     *
+     * @return the new schema
+     *
+     * @throws SchemaProblem if the files cannot be parsed or built into a schema, the previous schema is kept
+     */
+    public synchronized GraphQLSchema reload(Collection<Path> changedPaths) throws SchemaProblem {
+        Map<Path, SchemaFile> newFiles = new TreeMap<Path, SchemaFile>(files);
+        Map<Path, SchemaFile> removedFiles = new HashMap<Path, SchemaFile>();
+        Map<Path, SchemaFile> addedFiles = new HashMap<Path, SchemaFile>();
+        Set<String> touchedNames = new HashSet<String>();
+        for (Path changedPath : changedPaths) {
+            Path path = changedPath.toAbsolutePath().normalize();
+            SchemaFile removed = newFiles.remove(path);
+            if (removed != null) {
+                removedFiles.put(path, removed);
+                touchedNames.addAll(removed.definedNames);
+            }
+            if (Files.isRegularFile(path) && SchemaParser.isSchemaFile(path)) {
+                SchemaFile added = new SchemaFile(schemaParser.parseSchemaFile(path));
+                newFiles.put(path, added);
+                addedFiles.put(path, added);
+                touchedNames.addAll(added.definedNames);
+            }
+        }
+
+        TypeDefinitionRegistry newTypeRegistry = merge(newFiles.values());
+        Set<String> changedNames = changedNames(typeRegistry, newTypeRegistry, touchedNames);
+
+        updateReferrers(removedFiles.values(), addedFiles.values());
+        GraphQLSchema newSchema;
+        try {
+            newSchema = build(newTypeRegistry, changedNames);
+        } catch (RuntimeException e) {
+            updateReferrers(addedFiles.values(), removedFiles.values());
+            throw e;
+        }
+
+        files = newFiles;
+        typeRegistry = newTypeRegistry;
+        schema = newSchema;
+        return newSchema;
+    }
+
+    private GraphQLSchema build(TypeDefinitionRegistry newTypeRegistry, Set<String> changedNames) {
+        GraphQLSchema previousSchema = schema;
+        if (previousSchema == null) {
+            return schemaGenerator.makeExecutableSchema(newTypeRegistry, wiring);
+        }
+        // a type that refers to a rebuilt type must be rebuilt too or it would point into the previous schema
+        Set<String> dirtyNames = new HashSet<String>(changedNames);
+        Deque<String> work = new ArrayDeque<String>(changedNames);
+        while (!work.isEmpty()) {
+            Map<String, Integer> referringNames = referrers.get(work.pop());
+            if (referringNames != null) {
+                for (String referringName : referringNames.keySet()) {
+                    if (dirtyNames.add(referringName)) {
+                        work.push(referringName);
+                    }
+                }
+            }
+        }
+
+        Map<String, TypeDefinition> types = newTypeRegistry.types();
+        List<GraphQLType> reusedTypes = new ArrayList<GraphQLType>();
+        for (GraphQLType graphQLType : previousSchema.getAllTypesAsList()) {
+            if (types.containsKey(graphQLType.getName()) && !dirtyNames.contains(graphQLType.getName())) {
+                reusedTypes.add(graphQLType);
+            }
+        }
+        return schemaGenerator.makeExecutableSchema(newTypeRegistry, wiring, reusedTypes);
+    }
+
+    private static TypeDefinitionRegistry merge(Collection<SchemaFile> schemaFiles) {
+        List<TypeDefinitionRegistry> typeRegistries = new ArrayList<TypeDefinitionRegistry>(schemaFiles.size());
+        for (SchemaFile schemaFile : schemaFiles) {
+            typeRegistries.add(schemaFile.typeRegistry);
+        }
+        return TypeDefinitionRegistry.mergeAll(typeRegistries);
+    }
+
+    private static Set<String> changedNames(TypeDefinitionRegistry oldTypeRegistry, TypeDefinitionRegistry newTypeRegistry, Set<String> touchedNames) {
+        if (oldTypeRegistry == null) {
+            return touchedNames;
+        }
+        AstComparator astComparator = new AstComparator();
+        Map<String, List<TypeExtensionDefinition>> oldExtensions = oldTypeRegistry.typeExtensions();
+        Map<String, List<TypeExtensionDefinition>> newExtensions = newTypeRegistry.typeExtensions();
+        Set<String> changedNames = new HashSet<String>();
+        for (String name : touchedNames) {
+            TypeDefinition oldDefinition = oldTypeRegistry.getType(name);
+            TypeDefinition newDefinition = newTypeRegistry.getType(name);
+            boolean same = oldDefinition == null ? newDefinition == null : newDefinition != null && astComparator.isEqual(oldDefinition, newDefinition);
+            if (!same || !sameExtensions(astComparator, oldExtensions.get(name), newExtensions.get(name))) {
+                changedNames.add(name);
+            }
+        }
+        return changedNames;
+    }
+
+    private static boolean sameExtensions(AstComparator astComparator, List<TypeExtensionDefinition> oldExtensions, List<TypeExtensionDefinition> newExtensions) {
+        List<TypeExtensionDefinition> before = oldExtensions == null ? Collections.<TypeExtensionDefinition>emptyList() : oldExtensions;
+        List<TypeExtensionDefinition> after = newExtensions == null ? Collections.<TypeExtensionDefinition>emptyList() : newExtensions;
+        if (before.size() != after.size()) {
+            return false;
+        }
+        for (int i = 0; i < before.size(); i++) {
+            if (!astComparator.isEqual(before.get(i), after.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateReferrers(Collection<SchemaFile> removedFiles, Collection<SchemaFile> addedFiles) {
+        for (SchemaFile removed : removedFiles) {
+            for (Map.Entry<String, Set<String>> entry : removed.references.entrySet()) {
+                for (String referencedName : entry.getValue()) {
+                    Map<String, Integer> referringNames = referrers.get(referencedName);
+                    int count = referringNames.get(entry.getKey()) - 1;
+                    if (count == 0) {
+                        referringNames.remove(entry.getKey());
+                    } else {
+                        referringNames.put(entry.getKey(), count);
+                    }
+                }
+            }
+        }
+        for (SchemaFile added : addedFiles) {
+            for (Map.Entry<String, Set<String>> entry : added.references.entrySet()) {
+                for (String referencedName : entry.getValue()) {
+                    Map<String, Integer> referringNames = referrers.get(referencedName);
+                    if (referringNames == null) {
+                        referringNames = new HashMap<String, Integer>();
+                        referrers.put(referencedName, referringNames);
+                    }
+                    Integer count = referringNames.get(entry.getKey());
+                    referringNames.put(entry.getKey(), count == null ? 1 : count + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the schema if that has not been done yet and starts watching the directory for changes on a daemon
+     * thread
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        if (schema == null) {
+            load();
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        registerAll(directory);
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "schema-reloader");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the directory
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watchService.close();
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private void watch() {
+        WatchService watchService = this.watchService;
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Set<Path> changedPaths = new LinkedHashSet<Path>();
+                while (key != null) {
+                    try {
+                        collectChanges(key, changedPaths);
+                    } catch (ClosedWatchServiceException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        // say a directory that went away again before it could be walked, keep watching the rest
+                        notifyFailure(e);
+                    }
+                    key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (!changedPaths.isEmpty()) {
+                    reloadAndNotify(changedPaths);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed, we are done
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changedPaths) {
+        try {
+            collectChanges(key.pollEvents(), (Path) key.watchable(), changedPaths);
+        } finally {
+            // the key must be reset whatever happened or its directory is not watched any more
+            key.reset();
+        }
+    }
+
+    private void collectChanges(List<WatchEvent<?>> events, Path watchedDirectory, Set<Path> changedPaths) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost so look at everything we know of and everything that is there now
+                synchronized (this) {
+                    changedPaths.addAll(files.keySet());
+                }
+                changedPaths.addAll(SchemaParser.schemaFiles(directory));
+                continue;
+            }
+            Path path = watchedDirectory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerAll(path);
+                } catch (IOException e) {
+                    notifyFailure(new RuntimeException(e));
+                }
+                changedPaths.addAll(SchemaParser.schemaFiles(path));
+            } else if (SchemaParser.isSchemaFile(path)) {
+                changedPaths.add(path);
+            }
+        }
+    }
+
+    private void reloadAndNotify(Set<Path> changedPaths) {
+        GraphQLSchema newSchema;
+        try {
+            newSchema = reload(changedPaths);
+        } catch (RuntimeException e) {
+            notifyFailure(e);
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.schemaReloaded(newSchema);
+            } catch (RuntimeException listenerFailure) {
+                LOG.log(Level.WARNING, "A schema reload listener failed", listenerFailure);
+            }
+        }
+    }
+
+    private void notifyFailure(RuntimeException e) {
+        for (Listener listener : listeners) {
+            try {
+                listener.reloadFailed(e);
+            } catch (RuntimeException listenerFailure) {
+                LOG.log(Level.WARNING, "A schema reload listener failed", listenerFailure);
+            }
+        }
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * The definitions of a single file along with the type references they make
+     */
+    private static class SchemaFile {
+        private final TypeDefinitionRegistry typeRegistry;
+        private final Set<String> definedNames = new HashSet<String>();
+        private final Map<String, Set<String>> references = new HashMap<String, Set<String>>();
+
+        SchemaFile(TypeDefinitionRegistry typeRegistry) {
+            this.typeRegistry = typeRegistry;
+            for (TypeDefinition typeDefinition : typeRegistry.types().values()) {
+                addReferences(typeDefinition);
+            }
+            for (Map.Entry<String, List<TypeExtensionDefinition>> entry : typeRegistry.typeExtensions().entrySet()) {
+                for (TypeExtensionDefinition typeExtension : entry.getValue()) {
+                    addReferences(typeExtension);
+                }
+            }
+            for (String scalarName : typeRegistry.scalars().keySet()) {
+                if (!ScalarInfo.STANDARD_SCALAR_DEFINITIONS.containsKey(scalarName)) {
+                    definedNames.add(scalarName);
+                }
+            }
+        }
+
+        private void addReferences(TypeDefinition typeDefinition) {
+            definedNames.add(typeDefinition.getName());
+            Set<String> referencedNames = references.get(typeDefinition.getName());
+            if (referencedNames == null) {
+                referencedNames = new HashSet<String>();
+                references.put(typeDefinition.getName(), referencedNames);
+            }
+            TypeReferenceGraph.addReferencedNames(typeDefinition, referencedNames);
+        }
+    }
+}
@@ -0,0 +1,700 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.AbstractNode;
+import graphql.language.Argument;
+import graphql.language.ArrayValue;
+import graphql.language.BooleanValue;
+import graphql.language.Definition;
+import graphql.language.Directive;
+import graphql.language.EnumTypeDefinition;
+import graphql.language.EnumValue;
+import graphql.language.EnumValueDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.FloatValue;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.IntValue;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ListType;
+import graphql.language.Node;
+import graphql.language.NonNullType;
+import graphql.language.ObjectField;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.ObjectValue;
+import graphql.language.OperationTypeDefinition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.SourceLocation;
+import graphql.language.StringValue;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import graphql.language.TypeName;
+import graphql.language.UnionTypeDefinition;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import com.gql.graphql.language.NamedSourceLocation;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form of a {@link TypeDefinitionRegistry} that can be loaded without parsing any schema text.
+ * A build step writes the snapshot once, see {@link #main(String[])}, and production nodes load it with a single
+ * memory mapped read via {@link SchemaParser#parseDirectory(Path, Path)}.
+ *
+ * A snapshot starts with a header holding a magic number, the format version and a fingerprint of the schema
+ * files it was made from.  A snapshot whose header does not match is never used, so a stale snapshot costs a
+ * parse of the schema files and nothing worse.  After the header comes a table of every string used followed
+ * by the definitions, each prefixed with its length in bytes.
+ */
+public class SchemaSnapshot {
+
+    private static final int MAGIC = 0x47514C53;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int SCHEMA = 1;
+    private static final int OBJECT_TYPE = 2;
+    private static final int TYPE_EXTENSION = 3;
+    private static final int INTERFACE_TYPE = 4;
+    private static final int UNION_TYPE = 5;
+    private static final int ENUM_TYPE = 6;
+    private static final int INPUT_OBJECT_TYPE = 7;
+    private static final int SCALAR_TYPE = 8;
+
+    private static final int TYPE_NAME = 1;
+    private static final int LIST_TYPE = 2;
+    private static final int NON_NULL_TYPE = 3;
+
+    private static final int NO_VALUE = 0;
+    private static final int INT_VALUE = 1;
+    private static final int FLOAT_VALUE = 2;
+    private static final int STRING_VALUE = 3;
+    private static final int BOOLEAN_VALUE = 4;
+    private static final int ENUM_VALUE = 5;
+    private static final int VARIABLE_REFERENCE = 6;
+    private static final int ARRAY_VALUE = 7;
+    private static final int OBJECT_VALUE = 8;
+
+    private SchemaSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot for the schema files found in a directory.  This is meant to be run as a build step.
+     *
+     * @param args the schema directory and the snapshot file to write
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SchemaSnapshot <schema directory> <snapshot file>");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        List<Path> schemaFiles = SchemaParser.schemaFiles(directory);
+        write(new SchemaParser().parseAll(schemaFiles), fingerprint(schemaFiles), Paths.get(args[1]));
+    }
+
+    /**
+     * Works out the fingerprint of a set of schema files, which is a SHA-256 digest of their names and contents
+     *
+     * @param schemaFiles the files in the order they are parsed
+     *
+     * @return the fingerprint
+     *
+     * @throws IOException if a file cannot be read
+     */
+    public static byte[] fingerprint(Collection<Path> schemaFiles) throws IOException {
+        MessageDigest digest = newDigest();
+        for (Path schemaFile : schemaFiles) {
+            digest.update(schemaFile.getFileName().toString().getBytes(UTF_8));
+            try (FileChannel channel = FileChannel.open(schemaFile, StandardOpenOption.READ)) {
+                long size = channel.size();
+                digest.update(ByteBuffer.allocate(8).putLong(size).array());
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Writes a snapshot of a registry.  The snapshot is written aside and then moved into place so a reader never
+     * sees a half written file.
+     *
+     * @param typeRegistry the registry to write
+     * @param fingerprint  the fingerprint of the schema the registry was parsed from
+     * @param snapshotFile the file to write
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(TypeDefinitionRegistry typeRegistry, byte[] fingerprint, Path snapshotFile) throws IOException {
+        Encoder encoder = new Encoder();
+        List<byte[]> definitions = new ArrayList<byte[]>();
+        if (typeRegistry.schemaDefinition() != null) {
+            definitions.add(encoder.encode(typeRegistry.schemaDefinition()));
+        }
+        for (TypeDefinition typeDefinition : typeRegistry.types().values()) {
+            definitions.add(encoder.encode(typeDefinition));
+        }
+        for (Map.Entry<String, ScalarTypeDefinition> entry : typeRegistry.scalars().entrySet()) {
+            // the standard scalars are always there and need not be stored
+            if (entry.getValue() != ScalarInfo.STANDARD_SCALAR_DEFINITIONS.get(entry.getKey())) {
+                definitions.add(encoder.encode(entry.getValue()));
+            }
+        }
+        for (List<TypeExtensionDefinition> typeExtensions : typeRegistry.typeExtensions().values()) {
+            for (TypeExtensionDefinition typeExtension : typeExtensions) {
+                definitions.add(encoder.encode(typeExtension));
+            }
+        }
+
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeByte(fingerprint.length);
+                out.write(fingerprint);
+                out.writeInt(encoder.strings.size());
+                for (String string : encoder.strings) {
+                    byte[] bytes = string.getBytes(UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.writeInt(definitions.size());
+                for (byte[] definition : definitions) {
+                    out.writeInt(definition.length);
+                    out.write(definition);
+                }
+                out.flush();
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads a registry back from a snapshot
+     *
+     * @param snapshotFile the snapshot to read
+     * @param fingerprint  the fingerprint of the current schema files
+     *
+     * @return the registry or null if there is no snapshot or it was made from other schema files or by another
+     * version of this code
+     *
+     * @throws IOException if the snapshot cannot be read or is truncated or corrupt
+     */
+    public static TypeDefinitionRegistry read(Path snapshotFile, byte[] fingerprint) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            if (buffer.remaining() < 9 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            byte[] snapshotFingerprint = new byte[buffer.get() & 0xFF];
+            buffer.get(snapshotFingerprint);
+            if (!Arrays.equals(snapshotFingerprint, fingerprint)) {
+                return null;
+            }
+            return new Decoder(buffer).decodeRegistry();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("The schema snapshot " + snapshotFile + " is truncated", e);
+        } catch (RuntimeException e) {
+            // a corrupt snapshot can send the decoder anywhere, say to a negative length or an index out of range
+            throw new IOException("The schema snapshot " + snapshotFile + " is corrupt", e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes definitions one at a time while building up the table of the strings they use
+     */
+    private static class Encoder {
+        private final List<String> strings = new ArrayList<String>();
+        private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        byte[] encode(Definition definition) throws IOException {
+            bytes.reset();
+            if (definition instanceof SchemaDefinition) {
+                SchemaDefinition schemaDefinition = (SchemaDefinition) definition;
+                writeHeader(SCHEMA, schemaDefinition, null);
+                writeDirectives(schemaDefinition.getDirectives());
+                writeVarInt(schemaDefinition.getOperationTypeDefinitions().size());
+                for (OperationTypeDefinition operationTypeDefinition : schemaDefinition.getOperationTypeDefinitions()) {
+                    writeLocation(operationTypeDefinition);
+                    writeString(operationTypeDefinition.getName());
+                    writeType(operationTypeDefinition.getType());
+                }
+            } else if (definition instanceof ObjectTypeDefinition) {
+                // a type extension is an object type definition too
+                ObjectTypeDefinition objectTypeDefinition = (ObjectTypeDefinition) definition;
+                writeHeader(definition instanceof TypeExtensionDefinition ? TYPE_EXTENSION : OBJECT_TYPE, objectTypeDefinition, objectTypeDefinition.getName());
+                writeVarInt(objectTypeDefinition.getImplements().size());
+                for (Type type : objectTypeDefinition.getImplements()) {
+                    writeType(type);
+                }
+                writeDirectives(objectTypeDefinition.getDirectives());
+                writeFieldDefinitions(objectTypeDefinition.getFieldDefinitions());
+            } else if (definition instanceof InterfaceTypeDefinition) {
+                InterfaceTypeDefinition interfaceTypeDefinition = (InterfaceTypeDefinition) definition;
+                writeHeader(INTERFACE_TYPE, interfaceTypeDefinition, interfaceTypeDefinition.getName());
+                writeDirectives(interfaceTypeDefinition.getDirectives());
+                writeFieldDefinitions(interfaceTypeDefinition.getFieldDefinitions());
+            } else if (definition instanceof UnionTypeDefinition) {
+                UnionTypeDefinition unionTypeDefinition = (UnionTypeDefinition) definition;
+                writeHeader(UNION_TYPE, unionTypeDefinition, unionTypeDefinition.getName());
+                writeDirectives(unionTypeDefinition.getDirectives());
+                writeVarInt(unionTypeDefinition.getMemberTypes().size());
+                for (Type type : unionTypeDefinition.getMemberTypes()) {
+                    writeType(type);
+                }
+            } else if (definition instanceof EnumTypeDefinition) {
+                EnumTypeDefinition enumTypeDefinition = (EnumTypeDefinition) definition;
+                writeHeader(ENUM_TYPE, enumTypeDefinition, enumTypeDefinition.getName());
+                writeDirectives(enumTypeDefinition.getDirectives());
+                writeVarInt(enumTypeDefinition.getEnumValueDefinitions().size());
+                for (EnumValueDefinition enumValueDefinition : enumTypeDefinition.getEnumValueDefinitions()) {
+                    writeLocation(enumValueDefinition);
+                    writeString(enumValueDefinition.getName());
+                    writeDirectives(enumValueDefinition.getDirectives());
+                }
+            } else if (definition instanceof InputObjectTypeDefinition) {
+                InputObjectTypeDefinition inputObjectTypeDefinition = (InputObjectTypeDefinition) definition;
+                writeHeader(INPUT_OBJECT_TYPE, inputObjectTypeDefinition, inputObjectTypeDefinition.getName());
+                writeDirectives(inputObjectTypeDefinition.getDirectives());
+                writeInputValueDefinitions(inputObjectTypeDefinition.getInputValueDefinitions());
+            } else if (definition instanceof ScalarTypeDefinition) {
+                ScalarTypeDefinition scalarTypeDefinition = (ScalarTypeDefinition) definition;
+                writeHeader(SCALAR_TYPE, scalarTypeDefinition, scalarTypeDefinition.getName());
+                writeDirectives(scalarTypeDefinition.getDirectives());
+            } else {
+                throw new IllegalArgumentException("Cannot snapshot a " + definition.getClass().getSimpleName());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private void writeHeader(int kind, Node node, String name) throws IOException {
+            out.writeByte(kind);
+            writeLocation(node);
+            if (name != null) {
+                writeString(name);
+            }
+        }
+
+        private void writeFieldDefinitions(List<FieldDefinition> fieldDefinitions) throws IOException {
+            writeVarInt(fieldDefinitions.size());
+            for (FieldDefinition fieldDefinition : fieldDefinitions) {
+                writeLocation(fieldDefinition);
+                writeString(fieldDefinition.getName());
+                writeInputValueDefinitions(fieldDefinition.getInputValueDefinitions());
+                writeType(fieldDefinition.getType());
+                writeDirectives(fieldDefinition.getDirectives());
+            }
+        }
+
+        private void writeInputValueDefinitions(List<InputValueDefinition> inputValueDefinitions) throws IOException {
+            writeVarInt(inputValueDefinitions.size());
+            for (InputValueDefinition inputValueDefinition : inputValueDefinitions) {
+                writeLocation(inputValueDefinition);
+                writeString(inputValueDefinition.getName());
+                writeType(inputValueDefinition.getType());
+                writeValue(inputValueDefinition.getDefaultValue());
+                writeDirectives(inputValueDefinition.getDirectives());
+            }
+        }
+
+        private void writeDirectives(List<Directive> directives) throws IOException {
+            writeVarInt(directives.size());
+            for (Directive directive : directives) {
+                writeLocation(directive);
+                writeString(directive.getName());
+                writeVarInt(directive.getArguments().size());
+                for (Argument argument : directive.getArguments()) {
+                    writeLocation(argument);
+                    writeString(argument.getName());
+                    writeValue(argument.getValue());
+                }
+            }
+        }
+
+        private void writeType(Type type) throws IOException {
+            writeLocation(type);
+            if (type instanceof NonNullType) {
+                out.writeByte(NON_NULL_TYPE);
+                writeType(((NonNullType) type).getType());
+            } else if (type instanceof ListType) {
+                out.writeByte(LIST_TYPE);
+                writeType(((ListType) type).getType());
+            } else {
+                out.writeByte(TYPE_NAME);
+                writeString(((TypeName) type).getName());
+            }
+        }
+
+        private void writeValue(Value value) throws IOException {
+            if (value == null) {
+                out.writeByte(NO_VALUE);
+                return;
+            }
+            if (value instanceof IntValue) {
+                out.writeByte(INT_VALUE);
+                writeLocation(value);
+                writeString(((IntValue) value).getValue().toString());
+            } else if (value instanceof FloatValue) {
+                out.writeByte(FLOAT_VALUE);
+                writeLocation(value);
+                writeString(((FloatValue) value).getValue().toString());
+            } else if (value instanceof StringValue) {
+                out.writeByte(STRING_VALUE);
+                writeLocation(value);
+                writeString(((StringValue) value).getValue());
+            } else if (value instanceof BooleanValue) {
+                out.writeByte(BOOLEAN_VALUE);
+                writeLocation(value);
+                out.writeBoolean(((BooleanValue) value).isValue());
+            } else if (value instanceof EnumValue) {
+                out.writeByte(ENUM_VALUE);
+                writeLocation(value);
+                writeString(((EnumValue) value).getName());
+            } else if (value instanceof VariableReference) {
+                out.writeByte(VARIABLE_REFERENCE);
+                writeLocation(value);
+                writeString(((VariableReference) value).getName());
+            } else if (value instanceof ArrayValue) {
+                out.writeByte(ARRAY_VALUE);
+                writeLocation(value);
+                List<Value> values = ((ArrayValue) value).getValues();
+                writeVarInt(values.size());
+                for (Value element : values) {
+                    writeValue(element);
+                }
+            } else if (value instanceof ObjectValue) {
+                out.writeByte(OBJECT_VALUE);
+                writeLocation(value);
+                List<ObjectField> objectFields = ((ObjectValue) value).getObjectFields();
+                writeVarInt(objectFields.size());
+                for (ObjectField objectField : objectFields) {
+                    writeLocation(objectField);
+                    writeString(objectField.getName());
+                    writeValue(objectField.getValue());
+                }
+            } else {
+                throw new IllegalArgumentException("Cannot snapshot a " + value.getClass().getSimpleName());
+            }
+        }
+
+        // a location is its line, or 0 when there is none, its column and the string index of its source name plus 1
+        private void writeLocation(Node node) throws IOException {
+            SourceLocation sourceLocation = node.getSourceLocation();
+            if (sourceLocation == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(sourceLocation.getLine());
+            writeVarInt(sourceLocation.getColumn());
+            if (sourceLocation instanceof NamedSourceLocation) {
+                writeVarInt(stringIndex(((NamedSourceLocation) sourceLocation).getSourceName()) + 1);
+            } else {
+                writeVarInt(0);
+            }
+        }
+
+        private void writeString(String string) throws IOException {
+            writeVarInt(stringIndex(string));
+        }
+
+        private int stringIndex(String string) {
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                stringIndexes.put(string, index);
+            }
+            return index;
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    /**
+     * Rebuilds definitions straight from the mapped snapshot
+     */
+    private static class Decoder {
+        private final ByteBuffer buffer;
+        private String[] strings;
+
+        Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        TypeDefinitionRegistry decodeRegistry() {
+            strings = new String[readLength(4)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readLength(1)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+            TypeDefinitionRegistry typeRegistry = new TypeDefinitionRegistry();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                if (typeRegistry.add(readDefinition()) != null || buffer.position() != end) {
+                    throw new IllegalStateException("Bad definition " + i);
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalStateException("Trailing bytes");
+            }
+            return typeRegistry;
+        }
+
+        /**
+         * Reads the length of what follows, checked against what is left so a corrupt length cannot allocate much
+         */
+        private int readLength(int bytesEach) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() / bytesEach) {
+                throw new IllegalStateException("Bad length " + length);
+            }
+            return length;
+        }
+
+        private Definition readDefinition() {
+            int kind = buffer.get();
+            SourceLocation sourceLocation = readLocation();
+            switch (kind) {
+                case SCHEMA:
+                    SchemaDefinition schemaDefinition = located(new SchemaDefinition(), sourceLocation);
+                    readDirectives(schemaDefinition.getDirectives());
+                    for (int i = readVarInt(); i > 0; i--) {
+                        SourceLocation operationLocation = readLocation();
+                        OperationTypeDefinition operationTypeDefinition = located(new OperationTypeDefinition(readString()), operationLocation);
+                        operationTypeDefinition.setType(readType());
+                        schemaDefinition.getOperationTypeDefinitions().add(operationTypeDefinition);
+                    }
+                    return schemaDefinition;
+                case OBJECT_TYPE:
+                case TYPE_EXTENSION:
+                    ObjectTypeDefinition objectTypeDefinition = kind == TYPE_EXTENSION ? new TypeExtensionDefinition(readString()) : new ObjectTypeDefinition(readString());
+                    located(objectTypeDefinition, sourceLocation);
+                    for (int i = readVarInt(); i > 0; i--) {
+                        objectTypeDefinition.getImplements().add(readType());
+                    }
+                    readDirectives(objectTypeDefinition.getDirectives());
+                    readFieldDefinitions(objectTypeDefinition.getFieldDefinitions());
+                    return objectTypeDefinition;
+                case INTERFACE_TYPE:
+                    InterfaceTypeDefinition interfaceTypeDefinition = located(new InterfaceTypeDefinition(readString()), sourceLocation);
+                    readDirectives(interfaceTypeDefinition.getDirectives());
+                    readFieldDefinitions(interfaceTypeDefinition.getFieldDefinitions());
+                    return interfaceTypeDefinition;
+                case UNION_TYPE:
+                    UnionTypeDefinition unionTypeDefinition = located(new UnionTypeDefinition(readString()), sourceLocation);
+                    readDirectives(unionTypeDefinition.getDirectives());
+                    for (int i = readVarInt(); i > 0; i--) {
+                        unionTypeDefinition.getMemberTypes().add(readType());
+                    }
+                    return unionTypeDefinition;
+                case ENUM_TYPE:
+                    EnumTypeDefinition enumTypeDefinition = located(new EnumTypeDefinition(readString()), sourceLocation);
+                    readDirectives(enumTypeDefinition.getDirectives());
+                    for (int i = readVarInt(); i > 0; i--) {
+                        SourceLocation valueLocation = readLocation();
+                        EnumValueDefinition enumValueDefinition = located(new EnumValueDefinition(readString()), valueLocation);
+                        readDirectives(enumValueDefinition.getDirectives());
+                        enumTypeDefinition.getEnumValueDefinitions().add(enumValueDefinition);
+                    }
+                    return enumTypeDefinition;
+                case INPUT_OBJECT_TYPE:
+                    InputObjectTypeDefinition inputObjectTypeDefinition = located(new InputObjectTypeDefinition(readString()), sourceLocation);
+                    readDirectives(inputObjectTypeDefinition.getDirectives());
+                    readInputValueDefinitions(inputObjectTypeDefinition.getInputValueDefinitions());
+                    return inputObjectTypeDefinition;
+                case SCALAR_TYPE:
+                    ScalarTypeDefinition scalarTypeDefinition = located(new ScalarTypeDefinition(readString()), sourceLocation);
+                    readDirectives(scalarTypeDefinition.getDirectives());
+                    return scalarTypeDefinition;
+                default:
+                    throw new IllegalStateException("Unknown definition kind " + kind);
+            }
+        }
+
+        private void readFieldDefinitions(List<FieldDefinition> fieldDefinitions) {
+            for (int i = readVarInt(); i > 0; i--) {
+                SourceLocation sourceLocation = readLocation();
+                FieldDefinition fieldDefinition = located(new FieldDefinition(readString()), sourceLocation);
+                readInputValueDefinitions(fieldDefinition.getInputValueDefinitions());
+                fieldDefinition.setType(readType());
+                readDirectives(fieldDefinition.getDirectives());
+                fieldDefinitions.add(fieldDefinition);
+            }
+        }
+
+        private void readInputValueDefinitions(List<InputValueDefinition> inputValueDefinitions) {
+            for (int i = readVarInt(); i > 0; i--) {
+                SourceLocation sourceLocation = readLocation();
+                InputValueDefinition inputValueDefinition = located(new InputValueDefinition(readString()), sourceLocation);
+                inputValueDefinition.setType(readType());
+                inputValueDefinition.setValue(readValue());
+                readDirectives(inputValueDefinition.getDirectives());
+                inputValueDefinitions.add(inputValueDefinition);
+            }
+        }
+
+        private void readDirectives(List<Directive> directives) {
+            for (int i = readVarInt(); i > 0; i--) {
+                SourceLocation sourceLocation = readLocation();
+                Directive directive = located(new Directive(readString()), sourceLocation);
+                for (int j = readVarInt(); j > 0; j--) {
+                    SourceLocation argumentLocation = readLocation();
+                    String name = readString();
+                    directive.getArguments().add(located(new Argument(name, readValue()), argumentLocation));
+                }
+                directives.add(directive);
+            }
+        }
+
+        private Type readType() {
+            SourceLocation sourceLocation = readLocation();
+            int kind = buffer.get();
+            switch (kind) {
+                case NON_NULL_TYPE:
+                    return located(new NonNullType(readType()), sourceLocation);
+                case LIST_TYPE:
+                    return located(new ListType(readType()), sourceLocation);
+                case TYPE_NAME:
+                    return located(new TypeName(readString()), sourceLocation);
+                default:
+                    throw new IllegalStateException("Unknown type kind " + kind);
+            }
+        }
+
+        private Value readValue() {
+            int kind = buffer.get();
+            if (kind == NO_VALUE) {
+                return null;
+            }
+            SourceLocation sourceLocation = readLocation();
+            switch (kind) {
+                case INT_VALUE:
+                    return located(new IntValue(new BigInteger(readString())), sourceLocation);
+                case FLOAT_VALUE:
+                    return located(new FloatValue(new BigDecimal(readString())), sourceLocation);
+                case STRING_VALUE:
+                    return located(new StringValue(readString()), sourceLocation);
+                case BOOLEAN_VALUE:
+                    return located(new BooleanValue(buffer.get() != 0), sourceLocation);
+                case ENUM_VALUE:
+                    return located(new EnumValue(readString()), sourceLocation);
+                case VARIABLE_REFERENCE:
+                    return located(new VariableReference(readString()), sourceLocation);
+                case ARRAY_VALUE:
+                    ArrayValue arrayValue = located(new ArrayValue(), sourceLocation);
+                    for (int i = readVarInt(); i > 0; i--) {
+                        arrayValue.getValues().add(readValue());
+                    }
+                    return arrayValue;
+                case OBJECT_VALUE:
+                    ObjectValue objectValue = located(new ObjectValue(), sourceLocation);
+                    for (int i = readVarInt(); i > 0; i--) {
+                        SourceLocation fieldLocation = readLocation();
+                        String name = readString();
+                        objectValue.getObjectFields().add(located(new ObjectField(name, readValue()), fieldLocation));
+                    }
+                    return objectValue;
+                default:
+                    throw new IllegalStateException("Unknown value kind " + kind);
+            }
+        }
+
+        private SourceLocation readLocation() {
+            int line = readVarInt();
+            if (line == 0) {
+                return null;
+            }
+            int column = readVarInt();
+            int sourceName = readVarInt();
+            return sourceName == 0 ? new SourceLocation(line, column) : new NamedSourceLocation(line, column, string(sourceName - 1));
+        }
+
+        private String readString() {
+            return string(readVarInt());
+        }
+
+        private String string(int index) {
+            if (index >= strings.length) {
+                throw new IllegalStateException("Bad string index " + index);
+            }
+            return strings[index];
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Bad variable length integer");
+        }
+
+        private static <T extends AbstractNode> T located(T node, SourceLocation sourceLocation) {
+            node.setSourceLocation(sourceLocation);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.EnumTypeDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ListType;
+import graphql.language.NonNullType;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.OperationTypeDefinition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeName;
+import graphql.language.UnionTypeDefinition;
+import com.gql.graphql.schema.idl.errors.InterfaceFieldArgumentRedefinitionError;
+import com.gql.graphql.schema.idl.errors.InterfaceFieldRedefinitionError;
+import com.gql.graphql.schema.idl.errors.MissingInterfaceFieldArgumentsError;
+import com.gql.graphql.schema.idl.errors.MissingInterfaceFieldError;
+import com.gql.graphql.schema.idl.errors.MissingInterfaceTypeError;
+import com.gql.graphql.schema.idl.errors.MissingScalarImplementationError;
+import com.gql.graphql.schema.idl.errors.MissingTypeError;
+import com.gql.graphql.schema.idl.errors.NotAnInputTypeError;
+import com.gql.graphql.schema.idl.errors.NotAnObjectTypeError;
+import com.gql.graphql.schema.idl.errors.NotAnOutputTypeError;
+import com.gql.graphql.schema.idl.errors.OperationTypesMustBeObjects;
+import com.gql.graphql.schema.idl.errors.QueryOperationMissingError;
+import com.gql.graphql.schema.idl.errors.SchemaMissingError;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This helps {@link SchemaGenerator} check a type registry before it builds anything from it, so that a bad schema
+ * is reported as a {@link com.gql.graphql.schema.idl.errors.SchemaProblem} listing everything wrong with it rather
+ * than failing part way through the build.
+ *
+ * Each type is checked on its own against the rest of the registry, so given a fork join pool the types are split
+ * into batches that are checked in parallel on it, and the errors of the batches are joined in the order of the
+ * types.  Without a pool they are checked one after another on the calling thread, with the same result.  The
+ * registry must be {@link TypeDefinitionRegistry#flatten() flattened}, which also makes it safe to read from many
+ * threads, and the problems with its type extensions are reported by the flattening.
+ *
+ * Interfaces and unions without a type resolver are not reported, the generator gives them one that can be wired
+ * up later.
+ */
+class SchemaTypeChecker {
+
+    // the number of types checked as one task, fewer than this are checked on the calling thread
+    static final int BATCH_SIZE = 128;
+
+    List<GraphQLError> checkTypeRegistry(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring) {
+        return checkTypeRegistry(typeRegistry, wiring, null);
+    }
+
+    /**
+     * @param pool the pool to check the types on or null to check them on the calling thread
+     */
+    List<GraphQLError> checkTypeRegistry(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, ForkJoinPool pool) {
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        checkSchemaInvariants(errors, typeRegistry);
+        checkScalarImplementationsArePresent(errors, typeRegistry, wiring);
+
+        List<TypeDefinition> typeDefinitions = new ArrayList<TypeDefinition>(typeRegistry.types().values());
+        if (pool == null || typeDefinitions.size() <= BATCH_SIZE) {
+            checkTypes(errors, typeRegistry, typeDefinitions, 0, typeDefinitions.size());
+        } else {
+            errors.addAll(pool.invoke(new CheckTypesTask(typeRegistry, typeDefinitions, 0, typeDefinitions.size())));
+        }
+        return errors;
+    }
+
+    private void checkSchemaInvariants(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry) {
+        SchemaDefinition schemaDefinition = typeRegistry.schemaDefinition();
+        if (schemaDefinition == null) {
+            errors.add(new SchemaMissingError());
+            return;
+        }
+        boolean hasQuery = false;
+        for (OperationTypeDefinition operationTypeDefinition : schemaDefinition.getOperationTypeDefinitions()) {
+            hasQuery |= "query".equals(operationTypeDefinition.getName());
+            TypeName typeName = TypeInfo.typeInfo(operationTypeDefinition.getType()).getTypeName();
+            TypeDefinition typeDefinition = typeRegistry.getType(typeName.getName());
+            if (typeDefinition == null) {
+                errors.add(new MissingTypeError("operation", operationTypeDefinition, operationTypeDefinition.getName(), typeName));
+            } else if (!(typeDefinition instanceof ObjectTypeDefinition)) {
+                errors.add(new OperationTypesMustBeObjects(operationTypeDefinition));
+            }
+        }
+        if (!hasQuery) {
+            errors.add(new QueryOperationMissingError());
+        }
+    }
+
+    private void checkScalarImplementationsArePresent(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring) {
+        Map<String, ?> scalars = wiring.getScalars();
+        for (String scalarName : typeRegistry.customScalars().keySet()) {
+            if (!scalars.containsKey(scalarName)) {
+                errors.add(new MissingScalarImplementationError(scalarName));
+            }
+        }
+    }
+
+    /**
+     * Checks a range of types, splitting it in half until it is small enough to check in one go
+     */
+    private static class CheckTypesTask extends RecursiveTask<List<GraphQLError>> {
+
+        private static final long serialVersionUID = -2967741553211804410L;
+
+        private final TypeDefinitionRegistry typeRegistry;
+        private final List<TypeDefinition> typeDefinitions;
+        private final int from;
+        private final int to;
+
+        CheckTypesTask(TypeDefinitionRegistry typeRegistry, List<TypeDefinition> typeDefinitions, int from, int to) {
+            this.typeRegistry = typeRegistry;
+            this.typeDefinitions = typeDefinitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<GraphQLError> compute() {
+            if (to - from <= BATCH_SIZE) {
+                List<GraphQLError> errors = new ArrayList<GraphQLError>();
+                checkTypes(errors, typeRegistry, typeDefinitions, from, to);
+                return errors;
+            }
+            int mid = (from + to) >>> 1;
+            CheckTypesTask left = new CheckTypesTask(typeRegistry, typeDefinitions, from, mid);
+            left.fork();
+            List<GraphQLError> right = new CheckTypesTask(typeRegistry, typeDefinitions, mid, to).compute();
+            List<GraphQLError> errors = left.join();
+            errors.addAll(right);
+            return errors;
+        }
+    }
+
+    private static void checkTypes(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, List<TypeDefinition> typeDefinitions, int from, int to) {
+        for (int i = from; i < to; i++) {
+            checkType(errors, typeRegistry, typeDefinitions.get(i));
+        }
+    }
+
+    private static void checkType(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, TypeDefinition typeDefinition) {
+        if (typeDefinition instanceof ObjectTypeDefinition) {
+            ObjectTypeDefinition objectType = (ObjectTypeDefinition) typeDefinition;
+            checkFieldTypesPresent(errors, typeRegistry, objectType, objectType.getFieldDefinitions());
+            checkInterfaceTypesPresent(errors, typeRegistry, objectType);
+            checkInterfacesAreImplemented(errors, typeRegistry, objectType);
+        } else if (typeDefinition instanceof InterfaceTypeDefinition) {
+            checkFieldTypesPresent(errors, typeRegistry, typeDefinition, ((InterfaceTypeDefinition) typeDefinition).getFieldDefinitions());
+        } else if (typeDefinition instanceof UnionTypeDefinition) {
+            for (Type memberType : ((UnionTypeDefinition) typeDefinition).getMemberTypes()) {
+                TypeName typeName = TypeInfo.typeInfo(memberType).getTypeName();
+                TypeDefinition memberDefinition = typeRegistry.getType(typeName.getName());
+                if (memberDefinition == null) {
+                    errors.add(new MissingTypeError("union member", typeDefinition, typeName));
+                } else if (!(memberDefinition instanceof ObjectTypeDefinition)) {
+                    errors.add(new NotAnObjectTypeError(memberDefinition));
+                }
+            }
+        } else if (typeDefinition instanceof InputObjectTypeDefinition) {
+            checkInputTypesPresent(errors, typeRegistry, typeDefinition, "input value", ((InputObjectTypeDefinition) typeDefinition).getInputValueDefinitions());
+        }
+    }
+
+    private static void checkFieldTypesPresent(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, TypeDefinition typeDefinition, List<FieldDefinition> fieldDefinitions) {
+        for (FieldDefinition fieldDefinition : fieldDefinitions) {
+            TypeName typeName = TypeInfo.typeInfo(fieldDefinition.getType()).getTypeName();
+            TypeDefinition fieldType = typeRegistry.getType(typeName.getName());
+            if (fieldType == null) {
+                errors.add(new MissingTypeError("field", typeDefinition, typeName));
+            } else if (fieldType instanceof InputObjectTypeDefinition) {
+                errors.add(new NotAnOutputTypeError(fieldType));
+            }
+            checkInputTypesPresent(errors, typeRegistry, typeDefinition, "argument", fieldDefinition.getInputValueDefinitions());
+        }
+    }
+
+    private static void checkInputTypesPresent(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, TypeDefinition typeDefinition, String typeOfType, List<InputValueDefinition> inputValueDefinitions) {
+        for (InputValueDefinition inputValueDefinition : inputValueDefinitions) {
+            TypeName typeName = TypeInfo.typeInfo(inputValueDefinition.getType()).getTypeName();
+            TypeDefinition inputType = typeRegistry.getType(typeName.getName());
+            if (inputType == null) {
+                errors.add(new MissingTypeError(typeOfType, typeDefinition, typeName));
+            } else if (!(inputType instanceof InputObjectTypeDefinition || inputType instanceof EnumTypeDefinition || inputType instanceof ScalarTypeDefinition)) {
+                errors.add(new NotAnInputTypeError(inputType));
+            }
+        }
+    }
+
+    private static void checkInterfaceTypesPresent(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, ObjectTypeDefinition objectType) {
+        for (Type type : objectType.getImplements()) {
+            TypeName typeName = TypeInfo.typeInfo(type).getTypeName();
+            if (!(typeRegistry.getType(typeName.getName()) instanceof InterfaceTypeDefinition)) {
+                errors.add(new MissingInterfaceTypeError("interface", objectType, typeName));
+            }
+        }
+    }
+
+    /**
+     * An object type must have every field of every interface it implements with the same type and the same
+     * arguments
+     */
+    private static void checkInterfacesAreImplemented(List<GraphQLError> errors, TypeDefinitionRegistry typeRegistry, ObjectTypeDefinition objectType) {
+        Map<String, FieldDefinition> objectFields = new LinkedHashMap<String, FieldDefinition>();
+        for (FieldDefinition fieldDefinition : objectType.getFieldDefinitions()) {
+            objectFields.put(fieldDefinition.getName(), fieldDefinition);
+        }
+
+        for (Type implementedType : objectType.getImplements()) {
+            TypeDefinition typeDefinition = typeRegistry.getType(implementedType);
+            if (!(typeDefinition instanceof InterfaceTypeDefinition)) {
+                // already reported as a missing interface
+                continue;
+            }
+            InterfaceTypeDefinition interfaceType = (InterfaceTypeDefinition) typeDefinition;
+            for (FieldDefinition interfaceField : interfaceType.getFieldDefinitions()) {
+                FieldDefinition objectField = objectFields.get(interfaceField.getName());
+                if (objectField == null) {
+                    errors.add(new MissingInterfaceFieldError("object", objectType, interfaceType, interfaceField));
+                    continue;
+                }
+                String interfaceFieldType = printType(interfaceField.getType());
+                String objectFieldType = printType(objectField.getType());
+                if (!interfaceFieldType.equals(objectFieldType)) {
+                    errors.add(new InterfaceFieldRedefinitionError("object", objectType, interfaceType, objectField, objectFieldType, interfaceFieldType));
+                }
+                List<InputValueDefinition> objectArgs = objectField.getInputValueDefinitions();
+                List<InputValueDefinition> interfaceArgs = interfaceField.getInputValueDefinitions();
+                if (objectArgs.size() != interfaceArgs.size()) {
+                    errors.add(new MissingInterfaceFieldArgumentsError("object", objectType, interfaceType, objectField));
+                    continue;
+                }
+                for (int i = 0; i < objectArgs.size(); i++) {
+                    String objectArg = printArgument(objectArgs.get(i));
+                    String interfaceArg = printArgument(interfaceArgs.get(i));
+                    if (!objectArg.equals(interfaceArg)) {
+                        errors.add(new InterfaceFieldArgumentRedefinitionError("object", objectType, interfaceType, objectField, objectArg, interfaceArg));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String printArgument(InputValueDefinition inputValueDefinition) {
+        return inputValueDefinition.getName() + ": " + printType(inputValueDefinition.getType());
+    }
+
+    private static String printType(Type type) {
+        if (type instanceof NonNullType) {
+            return printType(((NonNullType) type).getType()) + "!";
+        }
+        if (type instanceof ListType) {
+            return "[" + printType(((ListType) type).getType()) + "]";
+        }
+        return ((TypeName) type).getName();
+    }
+}
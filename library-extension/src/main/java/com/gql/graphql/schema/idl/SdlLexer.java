@@ -0,0 +1,408 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.SourceLocation;
+import com.gql.graphql.language.NamedSourceLocation;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+import com.gql.graphql.schema.idl.errors.SchemaSyntaxError;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+
+/**
+ * The tokenizer behind {@link SdlParser}.  It reads straight from a {@link Reader} through a fixed size window and
+ * keeps just the current token, so the source is never held as a whole.  Names are interned in a small per parse
+ * table so the many references to the same type share one String.
+ *
+ * Line and column numbers follow the ANTLR parser so both report the same source locations.
+ */
+class SdlLexer {
+
+    static final int EOF = 0;
+    static final int NAME = 1;
+    static final int INT = 2;
+    static final int FLOAT = 3;
+    static final int STRING = 4;
+    static final int PUNCTUATOR = 5;
+
+    private static final int WINDOW_SIZE = 1024 * 8;
+    private static final char BYTE_ORDER_MARK = 0xFEFF;
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private final Reader reader;
+    private final String sourceName;
+    private final char[] window = new char[WINDOW_SIZE];
+    private int pos;
+    private int limit;
+    private boolean exhausted;
+    private int line;
+    private int column;
+
+    private char[] tokenChars = new char[64];
+    private int tokenLength;
+    private final NameTable names = new NameTable();
+
+    private int kind;
+    private char punctuator;
+    private String text;
+    private int tokenLine;
+    private int tokenColumn;
+
+    SdlLexer(Reader reader, String sourceName) {
+        this(reader, sourceName, 1, 1);
+    }
+
+    /**
+     * A lexer of part of a larger source that reports locations relative to that source
+     *
+     * @param reader     the reader of the part
+     * @param sourceName the name of the whole source or null
+     * @param line       the line the part starts on
+     * @param column     the column the part starts at
+     */
+    SdlLexer(Reader reader, String sourceName, int line, int column) {
+        this.reader = reader;
+        this.sourceName = sourceName;
+        this.line = line;
+        this.column = column - 1;
+    }
+
+    /**
+     * @return the kind of the current token
+     */
+    int kind() {
+        return kind;
+    }
+
+    /**
+     * @return the punctuator character when the current token is a {@link #PUNCTUATOR}, '.' stands for '...'
+     */
+    char punctuator() {
+        return punctuator;
+    }
+
+    /**
+     * @return the text of the current name or number token, or the decoded value of a string token
+     */
+    String text() {
+        return text;
+    }
+
+    boolean isPunctuator(char c) {
+        return kind == PUNCTUATOR && punctuator == c;
+    }
+
+    boolean isName(String name) {
+        return kind == NAME && name.equals(text);
+    }
+
+    SourceLocation location() {
+        return sourceName == null ? new SourceLocation(tokenLine, tokenColumn) : new NamedSourceLocation(tokenLine, tokenColumn, sourceName);
+    }
+
+    String describe() {
+        switch (kind) {
+            case EOF:
+                return "the end of the input";
+            case PUNCTUATOR:
+                return punctuator == '.' ? "'...'" : "'" + punctuator + "'";
+            case STRING:
+                return "string \"" + text + "\"";
+            default:
+                return "'" + text + "'";
+        }
+    }
+
+    SchemaProblem syntaxError(String problem) {
+        return new SchemaProblem(Collections.<GraphQLError>singletonList(new SchemaSyntaxError(location(), problem)));
+    }
+
+    /**
+     * Moves to the next token
+     *
+     * @throws IOException   if the reader fails
+     * @throws SchemaProblem if the input cannot be tokenized
+     */
+    void next() throws IOException, SchemaProblem {
+        skipIgnored();
+        tokenLine = line;
+        tokenColumn = column + 1;
+        text = null;
+
+        int c = peek();
+        if (c == -1) {
+            kind = EOF;
+        } else if (c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+            readName();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            readNumber();
+        } else if (c == '"') {
+            readString();
+        } else if (c == '.') {
+            for (int i = 0; i < 3; i++) {
+                if (read() != '.') {
+                    throw syntaxError("expected '...'");
+                }
+            }
+            kind = PUNCTUATOR;
+            punctuator = '.';
+        } else {
+            switch (c) {
+                case '!':
+                case '$':
+                case '(':
+                case ')':
+                case ':':
+                case '=':
+                case '@':
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                case '|':
+                    read();
+                    kind = PUNCTUATOR;
+                    punctuator = (char) c;
+                    break;
+                default:
+                    throw syntaxError(String.format("unexpected character '%s'", (char) c));
+            }
+        }
+    }
+
+    private void skipIgnored() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == ' ' || c == '\t' || c == ',' || c == '\n' || c == '\r' || c == BYTE_ORDER_MARK) {
+                read();
+            } else if (c == '#') {
+                while (c != -1 && c != '\n' && c != '\r') {
+                    read();
+                    c = peek();
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void readName() throws IOException {
+        tokenLength = 0;
+        int c = peek();
+        while (c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+            append((char) read());
+            c = peek();
+        }
+        kind = NAME;
+        text = names.intern(tokenChars, tokenLength);
+    }
+
+    private void readNumber() throws IOException, SchemaProblem {
+        tokenLength = 0;
+        kind = INT;
+        if (peek() == '-') {
+            append((char) read());
+        }
+        int c = peek();
+        if (c == '0') {
+            append((char) read());
+        } else if (c >= '1' && c <= '9') {
+            readDigits();
+        } else {
+            throw syntaxError("expected a digit after '-'");
+        }
+        if (peek() == '.') {
+            kind = FLOAT;
+            append((char) read());
+            if (!isDigit(peek())) {
+                throw syntaxError("expected a digit after '.'");
+            }
+            readDigits();
+        }
+        c = peek();
+        if (c == 'e' || c == 'E') {
+            kind = FLOAT;
+            append((char) read());
+            c = peek();
+            if (c == '+' || c == '-') {
+                append((char) read());
+            }
+            if (!isDigit(peek())) {
+                throw syntaxError("expected a digit in the exponent");
+            }
+            readDigits();
+        }
+        text = new String(tokenChars, 0, tokenLength);
+    }
+
+    private void readDigits() throws IOException {
+        while (isDigit(peek())) {
+            append((char) read());
+        }
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void readString() throws IOException, SchemaProblem {
+        tokenLength = 0;
+        read();
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                break;
+            }
+            if (c == -1 || c == '\n' || c == '\r' || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                throw syntaxError("unterminated string");
+            }
+            if (c == '\\') {
+                append(readEscape());
+            } else {
+                append((char) c);
+            }
+        }
+        kind = STRING;
+        text = new String(tokenChars, 0, tokenLength);
+    }
+
+    private char readEscape() throws IOException, SchemaProblem {
+        int c = read();
+        switch (c) {
+            case '"':
+                return '"';
+            case '/':
+                return '/';
+            case '\\':
+                return '\\';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit == -1) {
+                        throw syntaxError("invalid unicode escape in string");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("invalid escape in string");
+        }
+    }
+
+    private void append(char c) {
+        if (tokenLength == tokenChars.length) {
+            char[] grown = new char[tokenChars.length * 2];
+            System.arraycopy(tokenChars, 0, grown, 0, tokenLength);
+            tokenChars = grown;
+        }
+        tokenChars[tokenLength++] = c;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return window[pos];
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        char c = window[pos++];
+        // like ANTLR only a line feed starts a new line
+        if (c == '\n') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        while (!exhausted) {
+            int n = reader.read(window, 0, window.length);
+            if (n == -1) {
+                exhausted = true;
+            } else if (n > 0) {
+                pos = 0;
+                limit = n;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An open addressing table of the names seen so far, looked up straight from the token characters so repeated
+     * names cost no allocation at all
+     */
+    private static class NameTable {
+        private String[] table = new String[256];
+        private int size;
+
+        String intern(char[] chars, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            int mask = table.length - 1;
+            int index = hash & mask;
+            String name;
+            while ((name = table[index]) != null) {
+                if (matches(name, chars, length)) {
+                    return name;
+                }
+                index = (index + 1) & mask;
+            }
+            name = new String(chars, 0, length);
+            table[index] = name;
+            if (++size * 2 > table.length) {
+                rehash();
+            }
+            return name;
+        }
+
+        private static boolean matches(String name, char[] chars, int length) {
+            if (name.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (name.charAt(i) != chars[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String name : old) {
+                if (name != null) {
+                    // String.hashCode is the same 31 based hash used on the way in
+                    int index = name.hashCode() & mask;
+                    while (table[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    table[index] = name;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.AbstractNode;
+import graphql.language.Argument;
+import graphql.language.ArrayValue;
+import graphql.language.BooleanValue;
+import graphql.language.Directive;
+import graphql.language.DirectiveDefinition;
+import graphql.language.DirectiveLocation;
+import graphql.language.EnumTypeDefinition;
+import graphql.language.EnumValue;
+import graphql.language.EnumValueDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.FloatValue;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.IntValue;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ListType;
+import graphql.language.NonNullType;
+import graphql.language.ObjectField;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.ObjectValue;
+import graphql.language.OperationTypeDefinition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.SourceLocation;
+import graphql.language.StringValue;
+import graphql.language.Type;
+import graphql.language.TypeExtensionDefinition;
+import graphql.language.TypeName;
+import graphql.language.UnionTypeDefinition;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * A recursive descent parser of the schema definition language that puts the definitions it reads straight into a
+ * {@link TypeDefinitionRegistry}.  It accepts the same schema documents as the ANTLR grammar of graphql-java and
+ * builds the same {@link graphql.language} nodes with the same source locations, but it never builds a parse tree
+ * or a {@link graphql.language.Document} on the way, and a syntax error is reported as a
+ * {@link com.gql.graphql.schema.idl.errors.SchemaSyntaxError} saying exactly what was expected where.
+ *
+ * Operations and fragments are not schema definitions and are rejected.
+ *
+ * A parser reads a single source and is not thread safe.
+ */
+class SdlParser {
+
+    private final SdlLexer lexer;
+
+    /**
+     * @param reader     the reader of the schema text, which is consumed but not closed
+     * @param sourceName the name of the source, say a file name, which will be recorded in every source location.
+     *                   Can be null
+     */
+    SdlParser(Reader reader, String sourceName) {
+        this.lexer = new SdlLexer(reader, sourceName);
+    }
+
+    /**
+     * A parser of part of a larger source, say a single definition, whose source locations are reported relative to
+     * the whole source
+     *
+     * @param reader     the reader of the part, which is consumed but not closed
+     * @param sourceName the name of the whole source or null
+     * @param line       the line the part starts on
+     * @param column     the column the part starts at
+     */
+    SdlParser(Reader reader, String sourceName, int line, int column) {
+        this.lexer = new SdlLexer(reader, sourceName, line, column);
+    }
+
+    /**
+     * Parses the source into a new registry
+     *
+     * @return the registry of the definitions read
+     *
+     * @throws IOException   if the reader fails
+     * @throws SchemaProblem if the source is not syntactically valid or defines something twice
+     */
+    TypeDefinitionRegistry parse() throws IOException, SchemaProblem {
+        TypeDefinitionRegistry typeRegistry = new TypeDefinitionRegistry();
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+
+        lexer.next();
+        if (lexer.kind() == SdlLexer.EOF) {
+            throw unexpected("a definition");
+        }
+        while (lexer.kind() != SdlLexer.EOF) {
+            parseDefinition(typeRegistry, errors);
+        }
+
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+        return typeRegistry;
+    }
+
+    private void parseDefinition(TypeDefinitionRegistry typeRegistry, List<GraphQLError> errors) throws IOException {
+        if (lexer.kind() != SdlLexer.NAME) {
+            throw unexpected("a definition");
+        }
+        SourceLocation location = lexer.location();
+        String keyword = lexer.text();
+        GraphQLError error;
+        if ("schema".equals(keyword)) {
+            lexer.next();
+            error = typeRegistry.add(parseSchemaDefinition(location));
+        } else if ("type".equals(keyword)) {
+            lexer.next();
+            error = typeRegistry.add(parseObjectTypeDefinition(new ObjectTypeDefinition(null), location));
+        } else if ("extend".equals(keyword)) {
+            lexer.next();
+            expectKeyword("type");
+            error = typeRegistry.add(parseObjectTypeDefinition(new TypeExtensionDefinition(), location));
+        } else if ("interface".equals(keyword)) {
+            lexer.next();
+            error = typeRegistry.add(parseInterfaceTypeDefinition(location));
+        } else if ("union".equals(keyword)) {
+            lexer.next();
+            error = typeRegistry.add(parseUnionTypeDefinition(location));
+        } else if ("enum".equals(keyword)) {
+            lexer.next();
+            error = typeRegistry.add(parseEnumTypeDefinition(location));
+        } else if ("input".equals(keyword)) {
+            lexer.next();
+            error = typeRegistry.add(parseInputObjectTypeDefinition(location));
+        } else if ("scalar".equals(keyword)) {
+            lexer.next();
+            ScalarTypeDefinition scalarTypeDefinition = located(new ScalarTypeDefinition(parseName()), location);
+            parseDirectives(scalarTypeDefinition.getDirectives());
+            error = typeRegistry.add(scalarTypeDefinition);
+        } else if ("directive".equals(keyword)) {
+            lexer.next();
+            // the registry has no place for directive definitions so like the ANTLR path they are read and dropped
+            parseDirectiveDefinition(location);
+            error = null;
+        } else {
+            throw unexpected("a schema definition");
+        }
+        if (error != null) {
+            errors.add(error);
+        }
+    }
+
+    private SchemaDefinition parseSchemaDefinition(SourceLocation location) throws IOException {
+        SchemaDefinition schemaDefinition = located(new SchemaDefinition(), location);
+        parseDirectives(schemaDefinition.getDirectives());
+        expect('{');
+        do {
+            SourceLocation operationLocation = lexer.location();
+            if (!lexer.isName("query") && !lexer.isName("mutation")) {
+                throw unexpected("'query' or 'mutation'");
+            }
+            OperationTypeDefinition operationTypeDefinition = located(new OperationTypeDefinition(lexer.text()), operationLocation);
+            lexer.next();
+            expect(':');
+            operationTypeDefinition.setType(parseTypeName());
+            schemaDefinition.getOperationTypeDefinitions().add(operationTypeDefinition);
+        } while (!lexer.isPunctuator('}'));
+        lexer.next();
+        return schemaDefinition;
+    }
+
+    private ObjectTypeDefinition parseObjectTypeDefinition(ObjectTypeDefinition objectTypeDefinition, SourceLocation location) throws IOException {
+        located(objectTypeDefinition, location);
+        objectTypeDefinition.setName(parseName());
+        if (lexer.isName("implements")) {
+            lexer.next();
+            do {
+                objectTypeDefinition.getImplements().add(parseTypeName());
+            } while (lexer.kind() == SdlLexer.NAME);
+        }
+        parseDirectives(objectTypeDefinition.getDirectives());
+        parseFieldDefinitions(objectTypeDefinition.getFieldDefinitions());
+        return objectTypeDefinition;
+    }
+
+    private InterfaceTypeDefinition parseInterfaceTypeDefinition(SourceLocation location) throws IOException {
+        InterfaceTypeDefinition interfaceTypeDefinition = located(new InterfaceTypeDefinition(parseName()), location);
+        parseDirectives(interfaceTypeDefinition.getDirectives());
+        parseFieldDefinitions(interfaceTypeDefinition.getFieldDefinitions());
+        return interfaceTypeDefinition;
+    }
+
+    private UnionTypeDefinition parseUnionTypeDefinition(SourceLocation location) throws IOException {
+        UnionTypeDefinition unionTypeDefinition = located(new UnionTypeDefinition(parseName()), location);
+        parseDirectives(unionTypeDefinition.getDirectives());
+        expect('=');
+        unionTypeDefinition.getMemberTypes().add(parseTypeName());
+        while (lexer.isPunctuator('|')) {
+            lexer.next();
+            unionTypeDefinition.getMemberTypes().add(parseTypeName());
+        }
+        return unionTypeDefinition;
+    }
+
+    private EnumTypeDefinition parseEnumTypeDefinition(SourceLocation location) throws IOException {
+        EnumTypeDefinition enumTypeDefinition = located(new EnumTypeDefinition(parseName()), location);
+        parseDirectives(enumTypeDefinition.getDirectives());
+        expect('{');
+        do {
+            SourceLocation valueLocation = lexer.location();
+            EnumValueDefinition enumValueDefinition = located(new EnumValueDefinition(parseName()), valueLocation);
+            parseDirectives(enumValueDefinition.getDirectives());
+            enumTypeDefinition.getEnumValueDefinitions().add(enumValueDefinition);
+        } while (!lexer.isPunctuator('}'));
+        lexer.next();
+        return enumTypeDefinition;
+    }
+
+    private InputObjectTypeDefinition parseInputObjectTypeDefinition(SourceLocation location) throws IOException {
+        InputObjectTypeDefinition inputObjectTypeDefinition = located(new InputObjectTypeDefinition(parseName()), location);
+        parseDirectives(inputObjectTypeDefinition.getDirectives());
+        expect('{');
+        do {
+            inputObjectTypeDefinition.getInputValueDefinitions().add(parseInputValueDefinition());
+        } while (!lexer.isPunctuator('}'));
+        lexer.next();
+        return inputObjectTypeDefinition;
+    }
+
+    private DirectiveDefinition parseDirectiveDefinition(SourceLocation location) throws IOException {
+        expect('@');
+        DirectiveDefinition directiveDefinition = located(new DirectiveDefinition(parseName()), location);
+        if (lexer.isPunctuator('(')) {
+            parseArgumentsDefinition(directiveDefinition.getInputValueDefinitions());
+        }
+        expectKeyword("on");
+        directiveDefinition.getDirectiveLocations().add(parseDirectiveLocation());
+        while (lexer.isPunctuator('|')) {
+            lexer.next();
+            directiveDefinition.getDirectiveLocations().add(parseDirectiveLocation());
+        }
+        return directiveDefinition;
+    }
+
+    private DirectiveLocation parseDirectiveLocation() throws IOException {
+        SourceLocation location = lexer.location();
+        return located(new DirectiveLocation(parseName()), location);
+    }
+
+    private void parseFieldDefinitions(List<FieldDefinition> fieldDefinitions) throws IOException {
+        expect('{');
+        do {
+            SourceLocation location = lexer.location();
+            FieldDefinition fieldDefinition = located(new FieldDefinition(parseName()), location);
+            if (lexer.isPunctuator('(')) {
+                parseArgumentsDefinition(fieldDefinition.getInputValueDefinitions());
+            }
+            expect(':');
+            fieldDefinition.setType(parseType());
+            parseDirectives(fieldDefinition.getDirectives());
+            fieldDefinitions.add(fieldDefinition);
+        } while (!lexer.isPunctuator('}'));
+        lexer.next();
+    }
+
+    private void parseArgumentsDefinition(List<InputValueDefinition> inputValueDefinitions) throws IOException {
+        expect('(');
+        do {
+            inputValueDefinitions.add(parseInputValueDefinition());
+        } while (!lexer.isPunctuator(')'));
+        lexer.next();
+    }
+
+    private InputValueDefinition parseInputValueDefinition() throws IOException {
+        SourceLocation location = lexer.location();
+        InputValueDefinition inputValueDefinition = located(new InputValueDefinition(parseName()), location);
+        expect(':');
+        inputValueDefinition.setType(parseType());
+        if (lexer.isPunctuator('=')) {
+            lexer.next();
+            inputValueDefinition.setValue(parseValue(false));
+        }
+        parseDirectives(inputValueDefinition.getDirectives());
+        return inputValueDefinition;
+    }
+
+    private void parseDirectives(List<Directive> directives) throws IOException {
+        while (lexer.isPunctuator('@')) {
+            SourceLocation location = lexer.location();
+            lexer.next();
+            Directive directive = located(new Directive(parseName()), location);
+            if (lexer.isPunctuator('(')) {
+                lexer.next();
+                do {
+                    SourceLocation argumentLocation = lexer.location();
+                    String name = parseName();
+                    expect(':');
+                    directive.getArguments().add(located(new Argument(name, parseValue(true)), argumentLocation));
+                } while (!lexer.isPunctuator(')'));
+                lexer.next();
+            }
+            directives.add(directive);
+        }
+    }
+
+    private Type parseType() throws IOException {
+        SourceLocation location = lexer.location();
+        Type type;
+        if (lexer.isPunctuator('[')) {
+            lexer.next();
+            type = located(new ListType(parseType()), location);
+            expect(']');
+        } else {
+            type = parseTypeName();
+        }
+        if (lexer.isPunctuator('!')) {
+            lexer.next();
+            type = located(new NonNullType(type), location);
+        }
+        return type;
+    }
+
+    private TypeName parseTypeName() throws IOException {
+        SourceLocation location = lexer.location();
+        return located(new TypeName(parseName()), location);
+    }
+
+    private Value parseValue(boolean allowVariables) throws IOException {
+        SourceLocation location = lexer.location();
+        Value value;
+        switch (lexer.kind()) {
+            case SdlLexer.INT:
+                value = located(new IntValue(new BigInteger(lexer.text())), location);
+                lexer.next();
+                break;
+            case SdlLexer.FLOAT:
+                value = located(new FloatValue(new BigDecimal(lexer.text())), location);
+                lexer.next();
+                break;
+            case SdlLexer.STRING:
+                value = located(new StringValue(lexer.text()), location);
+                lexer.next();
+                break;
+            case SdlLexer.NAME:
+                if (lexer.isName("true") || lexer.isName("false")) {
+                    value = located(new BooleanValue(lexer.isName("true")), location);
+                } else {
+                    value = located(new EnumValue(lexer.text()), location);
+                }
+                lexer.next();
+                break;
+            case SdlLexer.PUNCTUATOR:
+                if (lexer.isPunctuator('[')) {
+                    lexer.next();
+                    ArrayValue arrayValue = located(new ArrayValue(), location);
+                    while (!lexer.isPunctuator(']')) {
+                        arrayValue.getValues().add(parseValue(allowVariables));
+                    }
+                    lexer.next();
+                    value = arrayValue;
+                    break;
+                }
+                if (lexer.isPunctuator('{')) {
+                    lexer.next();
+                    ObjectValue objectValue = located(new ObjectValue(), location);
+                    while (!lexer.isPunctuator('}')) {
+                        // like the ANTLR path object fields carry no location
+                        String name = parseName();
+                        expect(':');
+                        objectValue.getObjectFields().add(new ObjectField(name, parseValue(allowVariables)));
+                    }
+                    lexer.next();
+                    value = objectValue;
+                    break;
+                }
+                if (allowVariables && lexer.isPunctuator('$')) {
+                    lexer.next();
+                    value = located(new VariableReference(parseName()), location);
+                    break;
+                }
+                throw unexpected("a value");
+            default:
+                throw unexpected("a value");
+        }
+        return value;
+    }
+
+    // 'true', 'false' and 'on' are tokens of their own in the ANTLR grammar and so cannot be used as names
+    private String parseName() throws IOException {
+        if (lexer.kind() != SdlLexer.NAME || lexer.isName("true") || lexer.isName("false") || lexer.isName("on")) {
+            throw unexpected("a name");
+        }
+        String name = lexer.text();
+        lexer.next();
+        return name;
+    }
+
+    private void expect(char punctuator) throws IOException {
+        if (!lexer.isPunctuator(punctuator)) {
+            throw unexpected("'" + punctuator + "'");
+        }
+        lexer.next();
+    }
+
+    private void expectKeyword(String keyword) throws IOException {
+        if (!lexer.isName(keyword)) {
+            throw unexpected("'" + keyword + "'");
+        }
+        lexer.next();
+    }
+
+    private SchemaProblem unexpected(String expected) {
+        return lexer.syntaxError(format("expected %s but found %s", expected, lexer.describe()));
+    }
+
+    private static <T extends AbstractNode> T located(T node, SourceLocation location) {
+        node.setSourceLocation(location);
+        return node;
+    }
+}
@@ -0,0 +1,426 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.Argument;
+import graphql.language.ArrayValue;
+import graphql.language.BooleanValue;
+import graphql.language.Directive;
+import graphql.language.EnumTypeDefinition;
+import graphql.language.EnumValue;
+import graphql.language.EnumValueDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.FloatValue;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.IntValue;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ListType;
+import graphql.language.NonNullType;
+import graphql.language.ObjectField;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.ObjectValue;
+import graphql.language.OperationTypeDefinition;
+import graphql.language.ScalarTypeDefinition;
+import graphql.language.SchemaDefinition;
+import graphql.language.StringValue;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import graphql.language.TypeName;
+import graphql.language.UnionTypeDefinition;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structural hashes of the types of a registry.  The hash of a definition covers everything that matters to the
+ * schema built from it, its names, types, directives and default values, but not where it was written, so the same
+ * schema hashes the same whichever files it was parsed from.
+ *
+ * Each type has a local hash, of its definition and its type extensions in order, which is kept up to date as
+ * definitions are added.  The hash of a type folds in the hashes of every type it refers to, as in a Merkle tree,
+ * so it changes whenever anything the type depends on changes.  Types that refer to each other round a cycle
+ * depend on each other, so a cycle is hashed as a whole.  Type hashes are worked out when asked for and kept until a
+ * change reaches them, and only the types that can reach a changed one are hashed again.
+ *
+ * The root hash covers every definition and does not depend on the order they were added in.  It is kept up to date
+ * as definitions are added.
+ */
+final class StructuralHashes {
+
+    private static final long SCHEMA = 1;
+    private static final long OBJECT_TYPE = 2;
+    private static final long TYPE_EXTENSION = 3;
+    private static final long INTERFACE_TYPE = 4;
+    private static final long UNION_TYPE = 5;
+    private static final long ENUM_TYPE = 6;
+    private static final long INPUT_OBJECT_TYPE = 7;
+    private static final long SCALAR_TYPE = 8;
+    private static final long TYPE_NAME = 9;
+    private static final long LIST_TYPE = 10;
+    private static final long NON_NULL_TYPE = 11;
+    private static final long NO_VALUE = 12;
+    private static final long INT_VALUE = 13;
+    private static final long FLOAT_VALUE = 14;
+    private static final long STRING_VALUE = 15;
+    private static final long BOOLEAN_VALUE = 16;
+    private static final long ENUM_VALUE = 17;
+    private static final long VARIABLE_REFERENCE = 18;
+    private static final long ARRAY_VALUE = 19;
+    private static final long OBJECT_VALUE = 20;
+
+    // the sum of the hashes of the type and the scalar of a name, which there is normally only one of
+    private final Map<String, Long> definitionHashes = new HashMap<String, Long>();
+    // the type extensions of a name folded together in the order they were added
+    private final Map<String, Long> extensionHashes = new HashMap<String, Long>();
+    // the type hashes worked out so far, a change drops those of the types that can reach it
+    private final Map<String, Long> typeHashes = new HashMap<String, Long>();
+    private long schemaHash;
+    private long rootHash;
+
+    StructuralHashes() {
+    }
+
+    /**
+     * A copy that can go on to add definitions of its own
+     */
+    StructuralHashes(StructuralHashes structuralHashes) {
+        synchronized (structuralHashes) {
+            this.definitionHashes.putAll(structuralHashes.definitionHashes);
+            this.extensionHashes.putAll(structuralHashes.extensionHashes);
+            this.typeHashes.putAll(structuralHashes.typeHashes);
+            this.schemaHash = structuralHashes.schemaHash;
+            this.rootHash = structuralHashes.rootHash;
+        }
+    }
+
+    /**
+     * Hashes a type definition, scalar or type extension.  It must already have been added to the reference graph.
+     */
+    synchronized void add(TypeDefinition typeDefinition, TypeReferenceGraph referenceGraph) {
+        String name = typeDefinition.getName();
+        rootHash -= entryHash(name);
+        if (typeDefinition instanceof TypeExtensionDefinition) {
+            Long extensionHash = extensionHashes.get(name);
+            extensionHashes.put(name, mix(extensionHash == null ? 0 : extensionHash, hash(typeDefinition)));
+        } else {
+            Long definitionHash = definitionHashes.get(name);
+            definitionHashes.put(name, (definitionHash == null ? 0 : definitionHash) + hash(typeDefinition));
+        }
+        rootHash += entryHash(name);
+        if (!typeHashes.isEmpty()) {
+            for (String changedName : referenceGraph.reaching(name)) {
+                typeHashes.remove(changedName);
+            }
+        }
+    }
+
+    synchronized void addSchema(SchemaDefinition schemaDefinition) {
+        rootHash -= schemaHash;
+        schemaHash = hash(schemaDefinition);
+        rootHash += schemaHash;
+    }
+
+    synchronized long rootHash() {
+        return rootHash;
+    }
+
+    /**
+     * @return the hash of the named type, folding in the hashes of all the types it refers to
+     */
+    synchronized long typeHash(String typeName, TypeReferenceGraph referenceGraph) {
+        Long typeHash = typeHashes.get(typeName);
+        if (typeHash == null) {
+            new Components(referenceGraph).visit(typeName);
+            typeHash = typeHashes.get(typeName);
+        }
+        return typeHash;
+    }
+
+    /**
+     * @return the hash of the definition and the type extensions of a name alone, without the types they refer to
+     */
+    synchronized long localHash(String name) {
+        Long definitionHash = definitionHashes.get(name);
+        Long extensionHash = extensionHashes.get(name);
+        return mix(definitionHash == null ? 0 : definitionHash, extensionHash == null ? 0 : extensionHash);
+    }
+
+    // what a name adds to the root hash, the root hash being the sum of these so that it does not depend on order
+    private long entryHash(String name) {
+        if (!definitionHashes.containsKey(name) && !extensionHashes.containsKey(name)) {
+            return 0;
+        }
+        return finish(mix(hash(name), localHash(name)));
+    }
+
+    /**
+     * Finds the strongly connected components among the types whose hashes are not known yet, with Tarjan's
+     * algorithm kept on explicit stacks since reference chains can be long, and hashes each one once all the
+     * components it refers to have been hashed
+     */
+    private final class Components {
+        private final TypeReferenceGraph referenceGraph;
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        private final Map<String, Integer> lowLinks = new HashMap<String, Integer>();
+        private final List<String> stack = new ArrayList<String>();
+        private final Set<String> onStack = new HashSet<String>();
+
+        Components(TypeReferenceGraph referenceGraph) {
+            this.referenceGraph = referenceGraph;
+        }
+
+        void visit(String root) {
+            List<String> path = new ArrayList<String>();
+            List<String[]> pathReferences = new ArrayList<String[]>();
+            List<Integer> pathPositions = new ArrayList<Integer>();
+            open(root, path, pathReferences, pathPositions);
+            while (!path.isEmpty()) {
+                int top = path.size() - 1;
+                String name = path.get(top);
+                String[] references = pathReferences.get(top);
+                int position = pathPositions.get(top);
+                if (position < references.length) {
+                    pathPositions.set(top, position + 1);
+                    String referenced = references[position];
+                    if (typeHashes.containsKey(referenced)) {
+                        continue;
+                    }
+                    Integer index = indexes.get(referenced);
+                    if (index == null) {
+                        open(referenced, path, pathReferences, pathPositions);
+                    } else if (onStack.contains(referenced)) {
+                        lowLinks.put(name, Math.min(lowLinks.get(name), index));
+                    }
+                    continue;
+                }
+                path.remove(top);
+                pathReferences.remove(top);
+                pathPositions.remove(top);
+                if (top > 0) {
+                    String parent = path.get(top - 1);
+                    lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLinks.get(name)));
+                }
+                if (lowLinks.get(name).equals(indexes.get(name))) {
+                    int start = stack.lastIndexOf(name);
+                    List<String> component = new ArrayList<String>(stack.subList(start, stack.size()));
+                    stack.subList(start, stack.size()).clear();
+                    onStack.removeAll(component);
+                    hashComponent(component);
+                }
+            }
+        }
+
+        private void open(String name, List<String> path, List<String[]> pathReferences, List<Integer> pathPositions) {
+            int index = indexes.size();
+            indexes.put(name, index);
+            lowLinks.put(name, index);
+            stack.add(name);
+            onStack.add(name);
+            path.add(name);
+            pathReferences.add(referenceGraph.references(name).toArray(new String[0]));
+            pathPositions.add(0);
+        }
+
+        /**
+         * Every component referred to from this one is already hashed, so the component hashes its members and
+         * those, each in an order that does not depend on the order definitions were added in
+         */
+        private void hashComponent(List<String> component) {
+            Collections.sort(component);
+            long componentHash = 0;
+            List<Long> referencedHashes = new ArrayList<Long>();
+            for (String name : component) {
+                componentHash = mix(componentHash, mix(hash(name), localHash(name)));
+                for (String referenced : referenceGraph.references(name)) {
+                    Long referencedHash = typeHashes.get(referenced);
+                    if (referencedHash != null) {
+                        referencedHashes.add(referencedHash);
+                    }
+                }
+            }
+            Collections.sort(referencedHashes);
+            for (Long referencedHash : referencedHashes) {
+                componentHash = mix(componentHash, referencedHash);
+            }
+            for (String name : component) {
+                typeHashes.put(name, finish(mix(hash(name), componentHash)));
+            }
+        }
+    }
+
+    static long hash(SchemaDefinition schemaDefinition) {
+        long h = mix(SCHEMA, hashDirectives(schemaDefinition.getDirectives()));
+        for (OperationTypeDefinition operationTypeDefinition : schemaDefinition.getOperationTypeDefinitions()) {
+            h = mix(h, hash(operationTypeDefinition.getName()));
+            h = mix(h, hash(operationTypeDefinition.getType()));
+        }
+        return finish(h);
+    }
+
+    private static long hash(TypeDefinition definition) {
+        long h;
+        if (definition instanceof ObjectTypeDefinition) {
+            // a type extension is an object type definition too
+            ObjectTypeDefinition objectTypeDefinition = (ObjectTypeDefinition) definition;
+            h = mix(definition instanceof TypeExtensionDefinition ? TYPE_EXTENSION : OBJECT_TYPE, hash(definition.getName()));
+            h = mix(h, objectTypeDefinition.getImplements().size());
+            for (Type type : objectTypeDefinition.getImplements()) {
+                h = mix(h, hash(type));
+            }
+            h = mix(h, hashDirectives(objectTypeDefinition.getDirectives()));
+            h = mix(h, hashFieldDefinitions(objectTypeDefinition.getFieldDefinitions()));
+        } else if (definition instanceof InterfaceTypeDefinition) {
+            InterfaceTypeDefinition interfaceTypeDefinition = (InterfaceTypeDefinition) definition;
+            h = mix(INTERFACE_TYPE, hash(definition.getName()));
+            h = mix(h, hashDirectives(interfaceTypeDefinition.getDirectives()));
+            h = mix(h, hashFieldDefinitions(interfaceTypeDefinition.getFieldDefinitions()));
+        } else if (definition instanceof UnionTypeDefinition) {
+            UnionTypeDefinition unionTypeDefinition = (UnionTypeDefinition) definition;
+            h = mix(UNION_TYPE, hash(definition.getName()));
+            h = mix(h, hashDirectives(unionTypeDefinition.getDirectives()));
+            h = mix(h, unionTypeDefinition.getMemberTypes().size());
+            for (Type type : unionTypeDefinition.getMemberTypes()) {
+                h = mix(h, hash(type));
+            }
+        } else if (definition instanceof EnumTypeDefinition) {
+            EnumTypeDefinition enumTypeDefinition = (EnumTypeDefinition) definition;
+            h = mix(ENUM_TYPE, hash(definition.getName()));
+            h = mix(h, hashDirectives(enumTypeDefinition.getDirectives()));
+            h = mix(h, enumTypeDefinition.getEnumValueDefinitions().size());
+            for (EnumValueDefinition enumValueDefinition : enumTypeDefinition.getEnumValueDefinitions()) {
+                h = mix(h, hash(enumValueDefinition.getName()));
+                h = mix(h, hashDirectives(enumValueDefinition.getDirectives()));
+            }
+        } else if (definition instanceof InputObjectTypeDefinition) {
+            InputObjectTypeDefinition inputObjectTypeDefinition = (InputObjectTypeDefinition) definition;
+            h = mix(INPUT_OBJECT_TYPE, hash(definition.getName()));
+            h = mix(h, hashDirectives(inputObjectTypeDefinition.getDirectives()));
+            h = mix(h, hashInputValueDefinitions(inputObjectTypeDefinition.getInputValueDefinitions()));
+        } else if (definition instanceof ScalarTypeDefinition) {
+            h = mix(SCALAR_TYPE, hash(definition.getName()));
+            h = mix(h, hashDirectives(((ScalarTypeDefinition) definition).getDirectives()));
+        } else {
+            throw new IllegalArgumentException("Cannot hash a " + definition.getClass().getSimpleName());
+        }
+        return finish(h);
+    }
+
+    private static long hashFieldDefinitions(List<FieldDefinition> fieldDefinitions) {
+        long h = fieldDefinitions.size();
+        for (FieldDefinition fieldDefinition : fieldDefinitions) {
+            h = mix(h, hash(fieldDefinition));
+        }
+        return h;
+    }
+
+    static long hash(FieldDefinition fieldDefinition) {
+        long h = hash(fieldDefinition.getName());
+        h = mix(h, hashInputValueDefinitions(fieldDefinition.getInputValueDefinitions()));
+        h = mix(h, hash(fieldDefinition.getType()));
+        return mix(h, hashDirectives(fieldDefinition.getDirectives()));
+    }
+
+    private static long hashInputValueDefinitions(List<InputValueDefinition> inputValueDefinitions) {
+        long h = inputValueDefinitions.size();
+        for (InputValueDefinition inputValueDefinition : inputValueDefinitions) {
+            h = mix(h, hash(inputValueDefinition));
+        }
+        return h;
+    }
+
+    static long hash(InputValueDefinition inputValueDefinition) {
+        long h = hash(inputValueDefinition.getName());
+        h = mix(h, hash(inputValueDefinition.getType()));
+        h = mix(h, hash(inputValueDefinition.getDefaultValue()));
+        return mix(h, hashDirectives(inputValueDefinition.getDirectives()));
+    }
+
+    static long hashDirectives(List<Directive> directives) {
+        long h = directives.size();
+        for (Directive directive : directives) {
+            h = mix(h, hash(directive.getName()));
+            h = mix(h, directive.getArguments().size());
+            for (Argument argument : directive.getArguments()) {
+                h = mix(h, hash(argument.getName()));
+                h = mix(h, hash(argument.getValue()));
+            }
+        }
+        return h;
+    }
+
+    static long hash(Type type) {
+        if (type instanceof NonNullType) {
+            return mix(NON_NULL_TYPE, hash(((NonNullType) type).getType()));
+        } else if (type instanceof ListType) {
+            return mix(LIST_TYPE, hash(((ListType) type).getType()));
+        } else {
+            return mix(TYPE_NAME, hash(((TypeName) type).getName()));
+        }
+    }
+
+    private static long hash(Value value) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+        if (value instanceof IntValue) {
+            return mix(INT_VALUE, hash(((IntValue) value).getValue().toString()));
+        } else if (value instanceof FloatValue) {
+            return mix(FLOAT_VALUE, hash(((FloatValue) value).getValue().toString()));
+        } else if (value instanceof StringValue) {
+            return mix(STRING_VALUE, hash(((StringValue) value).getValue()));
+        } else if (value instanceof BooleanValue) {
+            return mix(BOOLEAN_VALUE, ((BooleanValue) value).isValue() ? 1 : 0);
+        } else if (value instanceof EnumValue) {
+            return mix(ENUM_VALUE, hash(((EnumValue) value).getName()));
+        } else if (value instanceof VariableReference) {
+            return mix(VARIABLE_REFERENCE, hash(((VariableReference) value).getName()));
+        } else if (value instanceof ArrayValue) {
+            List<Value> values = ((ArrayValue) value).getValues();
+            long h = mix(ARRAY_VALUE, values.size());
+            for (Value element : values) {
+                h = mix(h, hash(element));
+            }
+            return h;
+        } else if (value instanceof ObjectValue) {
+            List<ObjectField> objectFields = ((ObjectValue) value).getObjectFields();
+            long h = mix(OBJECT_VALUE, objectFields.size());
+            for (ObjectField objectField : objectFields) {
+                h = mix(h, hash(objectField.getName()));
+                h = mix(h, hash(objectField.getValue()));
+            }
+            return h;
+        } else {
+            throw new IllegalArgumentException("Cannot hash a " + value.getClass().getSimpleName());
+        }
+    }
+
+    // 64 bit FNV-1a over the characters, finished so that names differing in one character differ everywhere
+    private static long hash(String string) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < string.length(); i++) {
+            h = (h ^ string.charAt(i)) * 0x100000001b3L;
+        }
+        return finish(mix(h, string.length()));
+    }
+
+    private static long mix(long h, long value) {
+        return (Long.rotateLeft(h, 23) ^ finish(value)) * 0x9e3779b97f4a7c15L;
+    }
+
+    // the finalizer of MurmurHash3, so that every bit of the input affects every bit of the output
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
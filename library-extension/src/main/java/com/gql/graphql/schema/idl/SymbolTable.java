@@ -0,0 +1,96 @@
+package com.gql.graphql.schema.idl;
+
+/**
+ * Gives each name a dense int id, counting up from zero in the order names are first seen, so that whatever is known
+ * about a name can be kept in plain arrays indexed by its id.  The name is hashed once to find its id, every lookup
+ * after that is an array access.
+ *
+ * A table is not thread safe while names are being added.
+ */
+final class SymbolTable {
+
+    private String[] names;
+    // open addressing slots holding id + 1 so that zero marks an empty slot
+    private int[] slots;
+    private int size;
+
+    SymbolTable() {
+        this.names = new String[16];
+        this.slots = new int[32];
+    }
+
+    /**
+     * A copy of a table that can go on to add names of its own
+     */
+    SymbolTable(SymbolTable symbolTable) {
+        this.names = symbolTable.names.clone();
+        this.slots = symbolTable.slots.clone();
+        this.size = symbolTable.size;
+    }
+
+    /**
+     * @return the number of names, which is one more than the highest id
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the id of the name or -1 if it has none
+     */
+    int id(String name) {
+        int mask = slots.length - 1;
+        int index = name.hashCode() & mask;
+        int slot;
+        while ((slot = slots[index]) != 0) {
+            if (names[slot - 1].equals(name)) {
+                return slot - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the id of the name, giving it the next id if it has none yet
+     */
+    int intern(String name) {
+        int mask = slots.length - 1;
+        int index = name.hashCode() & mask;
+        int slot;
+        while ((slot = slots[index]) != 0) {
+            if (names[slot - 1].equals(name)) {
+                return slot - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size == names.length) {
+            String[] grown = new String[size * 2];
+            System.arraycopy(names, 0, grown, 0, size);
+            names = grown;
+        }
+        int id = size++;
+        names[id] = name;
+        slots[index] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int index = names[id].hashCode() & mask;
+            while (slots[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = id + 1;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.gql.graphql.schema.idl;
 
 import graphql.GraphQLError;
 import graphql.language.Definition;
+import graphql.language.OperationTypeDefinition;
 import graphql.language.ScalarTypeDefinition;
 import graphql.language.SchemaDefinition;
 import graphql.language.Type;
@@ -12,10 +13,17 @@ import com.gql.graphql.schema.idl.errors.SchemaProblem;
 import com.gql.graphql.schema.idl.errors.SchemaRedefinitionError;
 import com.gql.graphql.schema.idl.errors.TypeRedefinitionError;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -28,13 +36,201 @@ import java.util.Map.Entry;
 /**
  * A {@link TypeDefinitionRegistry} contains the set of type definitions that come from compiling
  * a graphql schema definition file via {@link SchemaParser#parse(String)}
+ *
+ * A registry from {@link SchemaParser#parseLazily(java.io.File)} only knows where each definition is to begin with and
+ * parses it the first time it is looked up.  Looking types up is then thread safe, and the first change to such a
+ * registry, say a merge, parses whatever is left.  Working out reachable types and pruning parse only the types they
+ * reach, everything else that needs the whole registry, freezing, flattening or hashing it, parses it all.
+ *
+ * A registry from {@link #freeze()} cannot be changed and hands out its maps as they are rather than copies of them,
+ * which makes it cheap to query over and over and safe to share between threads.
  */
 public class TypeDefinitionRegistry {
 
-    private final Map<String, ScalarTypeDefinition> scalarTypes = new LinkedHashMap<String, ScalarTypeDefinition>();
-    private final Map<String, List<TypeExtensionDefinition>> typeExtensions = new LinkedHashMap<String, List<TypeExtensionDefinition>>();
-    private final Map<String, TypeDefinition> types = new LinkedHashMap<String, TypeDefinition>();
+    private final Map<String, ScalarTypeDefinition> scalarTypes;
+    private final Map<String, List<TypeExtensionDefinition>> typeExtensions;
+    private final Map<String, TypeDefinition> types;
     private SchemaDefinition schema;
+    // the definitions of a lazily parsed registry, which are only moved into the maps above when it is changed
+    private volatile DefinitionIndex lazyDefinitions;
+    // the standard and the custom scalars of a frozen registry, null unless frozen
+    private final Map<String, ScalarTypeDefinition> frozenScalars;
+    // the ids of the type names of a frozen registry and the definition that getType finds for each, null unless frozen
+    private final SymbolTable symbols;
+    private final TypeDefinition[] definitionsById;
+    // kept up to date as definitions are added
+    private final TypeReferenceGraph referenceGraph;
+    private final StructuralHashes structuralHashes;
+    // the type extensions of a frozen registry folded into its types, made the first time it is asked for
+    private volatile TypeExtensionFlattener flattener;
+
+    public TypeDefinitionRegistry() {
+        this((DefinitionIndex) null);
+    }
+
+    /**
+     * A registry that parses each definition of the index the first time it is asked for
+     */
+    TypeDefinitionRegistry(DefinitionIndex lazyDefinitions) {
+        this.scalarTypes = new LinkedHashMap<String, ScalarTypeDefinition>();
+        this.typeExtensions = new LinkedHashMap<String, List<TypeExtensionDefinition>>();
+        this.types = new LinkedHashMap<String, TypeDefinition>();
+        this.frozenScalars = null;
+        this.symbols = null;
+        this.definitionsById = null;
+        this.referenceGraph = new TypeReferenceGraph();
+        this.structuralHashes = new StructuralHashes();
+        this.lazyDefinitions = lazyDefinitions;
+    }
+
+    /**
+     * An empty registry whose maps are already big enough for the given number of definitions
+     */
+    private TypeDefinitionRegistry(int typeCount, int scalarCount, int typeExtensionCount) {
+        this.scalarTypes = new LinkedHashMap<String, ScalarTypeDefinition>(capacity(scalarCount));
+        this.typeExtensions = new LinkedHashMap<String, List<TypeExtensionDefinition>>(capacity(typeExtensionCount));
+        this.types = new LinkedHashMap<String, TypeDefinition>(capacity(typeCount));
+        this.frozenScalars = null;
+        this.symbols = null;
+        this.definitionsById = null;
+        this.referenceGraph = new TypeReferenceGraph();
+        this.structuralHashes = new StructuralHashes();
+    }
+
+    private static int capacity(int size) {
+        // the default load factor is three quarters
+        return size + size / 3 + 1;
+    }
+
+    /**
+     * A frozen copy of a registry
+     */
+    private TypeDefinitionRegistry(TypeDefinitionRegistry typeRegistry) {
+        typeRegistry.parseDefinitions();
+        Map<String, List<TypeExtensionDefinition>> frozenExtensions = new LinkedHashMap<String, List<TypeExtensionDefinition>>();
+        for (Entry<String, List<TypeExtensionDefinition>> entry : typeRegistry.typeExtensions.entrySet()) {
+            frozenExtensions.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<TypeExtensionDefinition>(entry.getValue())));
+        }
+        this.scalarTypes = Collections.unmodifiableMap(new LinkedHashMap<String, ScalarTypeDefinition>(typeRegistry.scalarTypes));
+        this.typeExtensions = Collections.unmodifiableMap(frozenExtensions);
+        this.types = Collections.unmodifiableMap(new LinkedHashMap<String, TypeDefinition>(typeRegistry.types));
+        this.schema = typeRegistry.schema;
+        Map<String, ScalarTypeDefinition> allScalars = new LinkedHashMap<String, ScalarTypeDefinition>(ScalarInfo.STANDARD_SCALAR_DEFINITIONS);
+        allScalars.putAll(typeRegistry.scalarTypes);
+        this.frozenScalars = Collections.unmodifiableMap(allScalars);
+
+        // the same precedence as getType, types before custom scalars before standard ones
+        this.symbols = new SymbolTable();
+        List<TypeDefinition> definitions = new ArrayList<TypeDefinition>(types.size() + allScalars.size());
+        for (TypeDefinition typeDefinition : types.values()) {
+            symbols.intern(typeDefinition.getName());
+            definitions.add(typeDefinition);
+        }
+        for (Entry<String, ScalarTypeDefinition> entry : allScalars.entrySet()) {
+            if (symbols.id(entry.getKey()) == -1) {
+                symbols.intern(entry.getKey());
+                definitions.add(entry.getValue());
+            }
+        }
+        this.definitionsById = definitions.toArray(new TypeDefinition[definitions.size()]);
+        this.referenceGraph = new TypeReferenceGraph();
+        for (TypeDefinition typeDefinition : types.values()) {
+            referenceGraph.add(typeDefinition);
+        }
+        for (List<TypeExtensionDefinition> typeExtensionList : typeExtensions.values()) {
+            for (TypeExtensionDefinition typeExtension : typeExtensionList) {
+                referenceGraph.add(typeExtension);
+            }
+        }
+        // the hashes of the same definitions are the same, as are any type hashes already worked out
+        this.structuralHashes = new StructuralHashes(typeRegistry.structuralHashes);
+    }
+
+    /**
+     * Returns an unchangeable copy of this registry.  Its {@link #types()}, {@link #scalars()} and
+     * {@link #typeExtensions()} are read only views built once, so asking for them and looking types up costs no
+     * copying at all.  Any attempt to change the copy throws an {@link UnsupportedOperationException}.  A lazily
+     * parsed registry is parsed in full.
+     *
+     * @return a frozen copy of this registry, or this registry if it is already frozen
+     */
+    public TypeDefinitionRegistry freeze() {
+        return isFrozen() ? this : new TypeDefinitionRegistry(this);
+    }
+
+    /**
+     * @return true if this registry came from {@link #freeze()} and so cannot be changed
+     */
+    public boolean isFrozen() {
+        return frozenScalars != null;
+    }
+
+    /**
+     * Returns a frozen copy of this registry in which every object type has its type extensions folded into it, so
+     * that it has no type extensions left.  The fields, interfaces and directives of a type come first and then
+     * those of each extension in the order they were added, and whatever is named more than once is kept the first
+     * time only.  Generating a schema from the flattened registry walks each type once rather than a type and all
+     * of its extensions.
+     *
+     * A frozen registry is flattened only the first time this is called and hands out the same copy after that,
+     * and a frozen registry without type extensions is its own flattened copy.
+     *
+     * @return the flattened registry
+     *
+     * @throws SchemaProblem if a type extension has no object type to extend or redefines a field with another type
+     */
+    public TypeDefinitionRegistry flatten() throws SchemaProblem {
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        TypeDefinitionRegistry flattened = flatten(errors);
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+        return flattened;
+    }
+
+    /**
+     * Like {@link #flatten()} but adds the problems to the given errors and leaves out what they are about instead of
+     * throwing
+     */
+    TypeDefinitionRegistry flatten(List<GraphQLError> errors) {
+        if (!isFrozen()) {
+            return freeze().flatten(errors);
+        }
+        TypeExtensionFlattener flattener = this.flattener;
+        if (flattener == null) {
+            synchronized (this) {
+                flattener = this.flattener;
+                if (flattener == null) {
+                    flattener = new TypeExtensionFlattener(this);
+                    this.flattener = flattener;
+                }
+            }
+        }
+        errors.addAll(flattener.errors());
+        return flattener.flattenedRegistry();
+    }
+
+    /**
+     * @return the ids of the type names of a frozen registry, or null if this registry is not frozen
+     */
+    SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * @param id the id of a type name in the {@link #symbols()} of a frozen registry
+     *
+     * @return the definition {@link #getType(String)} finds for the name
+     */
+    TypeDefinition getType(int id) {
+        return definitionsById[id];
+    }
+
+    private void checkNotFrozen() {
+        if (isFrozen()) {
+            throw new UnsupportedOperationException("A frozen type registry cannot be changed");
+        }
+    }
 
     /**
      * This will merge these type registries together and return this one
@@ -46,6 +242,9 @@ public class TypeDefinitionRegistry {
      * @throws SchemaProblem if there are problems merging the types such as redefinitions
      */
     public TypeDefinitionRegistry merge(TypeDefinitionRegistry  typeRegistry) throws SchemaProblem {
+        checkNotFrozen();
+        this.parseDefinitions();
+        typeRegistry.parseDefinitions();
         List<GraphQLError> errors = new ArrayList<GraphQLError>();
 
         Map<String, TypeDefinition> tempTypes = new LinkedHashMap<String, TypeDefinition>();
@@ -58,7 +257,10 @@ public class TypeDefinitionRegistry {
         Iterator<TypeDefinition> typeIterator= typesCollection.iterator();
         while(typeIterator.hasNext()){
             TypeDefinition newEntry= typeIterator.next();
-            define(this.types, tempTypes, newEntry);
+            GraphQLError error = define(this.types, tempTypes, newEntry);
+            if (error != null) {
+                errors.add(error);
+            }
         }
 
         Map<String, ScalarTypeDefinition> tempScalarTypes = new LinkedHashMap<String, ScalarTypeDefinition>();
@@ -69,7 +271,10 @@ public class TypeDefinitionRegistry {
         Iterator<ScalarTypeDefinition> scalarIterator= scalarTypesCollection.iterator();
         while(scalarIterator.hasNext()){
             ScalarTypeDefinition newEntry= scalarIterator.next();
-            define(this.scalarTypes, tempScalarTypes, newEntry);
+            GraphQLError error = define(this.scalarTypes, tempScalarTypes, newEntry);
+            if (error != null) {
+                errors.add(error);
+            }
         }
 
         if (typeRegistry.schema != null && this.schema != null) {
@@ -83,11 +288,20 @@ public class TypeDefinitionRegistry {
         if (this.schema == null) {
             // ensure schema is not overwritten by merge
             this.schema = typeRegistry.schema;
+            if (schema != null) {
+                structuralHashes.addSchema(schema);
+            }
         }
 
         // ok commit to the merge
         this.types.putAll(tempTypes);
         this.scalarTypes.putAll(tempScalarTypes);
+        for (TypeDefinition newEntry : tempTypes.values()) {
+            index(newEntry);
+        }
+        for (ScalarTypeDefinition newEntry : tempScalarTypes.values()) {
+            index(newEntry);
+        }
 
         // merge type extensions since they can be redefined by design
         // typeRegistry.typeExtensions.entrySet().forEach(newEntry -> {
@@ -97,6 +311,117 @@ public class TypeDefinitionRegistry {
         //     currentList.addAll(newEntry.getValue());
         // });
 
+        mergeTypeExtensions(typeRegistry);
+        return this;
+    }
+
+    /**
+     * Merges many registries at once into a new one, say the schemas of every module of an application.  Each
+     * definition is copied once into maps sized up front for all of them, so the cost grows with the total number
+     * of definitions rather than with that times the number of registries, as merging them one by one would.
+     *
+     * Every redefinition is found in the same pass, between any two of the registries, and all of them are reported
+     * together, each against the registry that came first.  The registries themselves are left unchanged.
+     *
+     * @param typeRegistries the registries to merge, in order
+     *
+     * @return a new registry of all their definitions
+     *
+     * @throws SchemaProblem if any definitions are redefined
+     */
+    public static TypeDefinitionRegistry mergeAll(List<TypeDefinitionRegistry> typeRegistries) throws SchemaProblem {
+        int typeCount = 0;
+        int scalarCount = 0;
+        int typeExtensionCount = 0;
+        for (TypeDefinitionRegistry typeRegistry : typeRegistries) {
+            typeRegistry.parseDefinitions();
+            typeCount += typeRegistry.types.size();
+            scalarCount += typeRegistry.scalarTypes.size();
+            typeExtensionCount += typeRegistry.typeExtensions.size();
+        }
+
+        TypeDefinitionRegistry merged = new TypeDefinitionRegistry(typeCount, scalarCount, typeExtensionCount);
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        for (TypeDefinitionRegistry typeRegistry : typeRegistries) {
+            for (TypeDefinition newEntry : typeRegistry.types.values()) {
+                GraphQLError error = merged.define(merged.types, merged.types, newEntry);
+                if (error != null) {
+                    errors.add(error);
+                }
+            }
+            for (ScalarTypeDefinition newEntry : typeRegistry.scalarTypes.values()) {
+                GraphQLError error = merged.define(merged.scalarTypes, merged.scalarTypes, newEntry);
+                if (error != null) {
+                    errors.add(error);
+                }
+            }
+            if (typeRegistry.schema != null) {
+                if (merged.schema != null) {
+                    errors.add(new SchemaRedefinitionError(merged.schema, typeRegistry.schema));
+                } else {
+                    merged.schema = typeRegistry.schema;
+                }
+            }
+            for (Entry<String, List<TypeExtensionDefinition>> entry : typeRegistry.typeExtensions.entrySet()) {
+                List<TypeExtensionDefinition> currentList = merged.typeExtensions.get(entry.getKey());
+                if (currentList == null) {
+                    currentList = new ArrayList<TypeExtensionDefinition>(entry.getValue().size());
+                    merged.typeExtensions.put(entry.getKey(), currentList);
+                }
+                currentList.addAll(entry.getValue());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+        // only worth indexing once the merge is known to have worked
+        merged.index(merged.types.values(), merged.scalarTypes.values(), merged.typeExtensions.values());
+        if (merged.schema != null) {
+            merged.structuralHashes.addSchema(merged.schema);
+        }
+        return merged;
+    }
+
+    /**
+     * This will merge the given type registry into this one, keeping the first definition of any redefined type
+     * and recording every conflict rather than failing on the first.  This allows many registries to be combined
+     * while all of their problems are still reported together.
+     *
+     * @param typeRegistry the registry to be merged into this one
+     * @param errors       the list that any redefinition errors are added to
+     */
+    void mergeReportingErrors(TypeDefinitionRegistry typeRegistry, List<GraphQLError> errors) {
+        checkNotFrozen();
+        this.parseDefinitions();
+        typeRegistry.parseDefinitions();
+        for (TypeDefinition newEntry : typeRegistry.types.values()) {
+            GraphQLError error = define(this.types, this.types, newEntry);
+            if (error != null) {
+                errors.add(error);
+            } else {
+                index(newEntry);
+            }
+        }
+        for (ScalarTypeDefinition newEntry : typeRegistry.scalarTypes.values()) {
+            GraphQLError error = define(this.scalarTypes, this.scalarTypes, newEntry);
+            if (error != null) {
+                errors.add(error);
+            } else {
+                index(newEntry);
+            }
+        }
+        if (typeRegistry.schema != null) {
+            if (this.schema != null) {
+                errors.add(new SchemaRedefinitionError(this.schema, typeRegistry.schema));
+            } else {
+                this.schema = typeRegistry.schema;
+                structuralHashes.addSchema(schema);
+            }
+        }
+        mergeTypeExtensions(typeRegistry);
+    }
+
+    private void mergeTypeExtensions(TypeDefinitionRegistry typeRegistry) {
         Set<Entry<String, List<TypeExtensionDefinition>>> typeExtensionsSet=typeRegistry.typeExtensions.entrySet();
         for(Entry<String, List<TypeExtensionDefinition>> entry: typeExtensionsSet){
 
@@ -106,9 +431,11 @@ public class TypeDefinitionRegistry {
             }
             currentList.addAll(entry.getValue()); 
             this.typeExtensions.put(entry.getKey(), currentList);           
+            for (TypeExtensionDefinition typeExtension : entry.getValue()) {
+                index(typeExtension);
+            }
 
         }   
-        return this;
     }
 
     /**
@@ -140,21 +467,32 @@ public class TypeDefinitionRegistry {
     // }
 
     public GraphQLError add(Definition definition) {
+        checkNotFrozen();
+        parseDefinitions();
         if (definition instanceof TypeExtensionDefinition) {
             TypeExtensionDefinition newEntry = (TypeExtensionDefinition) definition;
             return defineExt(typeExtensions, newEntry);
         } else if (definition instanceof ScalarTypeDefinition) {
             ScalarTypeDefinition newEntry = (ScalarTypeDefinition) definition;
-            return define(scalarTypes, scalarTypes, newEntry);
+            GraphQLError error = define(scalarTypes, scalarTypes, newEntry);
+            if (error == null) {
+                index(newEntry);
+            }
+            return error;
         } else if (definition instanceof TypeDefinition) {
             TypeDefinition newEntry = (TypeDefinition) definition;
-            return define(types, types, newEntry);
+            GraphQLError error = define(types, types, newEntry);
+            if (error == null) {
+                index(newEntry);
+            }
+            return error;
         } else if (definition instanceof SchemaDefinition) {
             SchemaDefinition newSchema = (SchemaDefinition) definition;
             if (schema != null) {
                 return new SchemaRedefinitionError(this.schema, newSchema);
             } else {
                 schema = newSchema;
+                structuralHashes.addSchema(newSchema);
             }
         }
         return null;
@@ -204,20 +542,383 @@ public class TypeDefinitionRegistry {
 
         currentList.add(newEntry);
         typeExtensions.put(newEntry.getName(), currentList);
+        index(newEntry);
         return null;
     }
 
+    /**
+     * Moves every definition of a lazily parsed registry into this one, parsing those not yet parsed, so that it
+     * can be changed like any other
+     */
+    private void parseDefinitions() {
+        if (lazyDefinitions == null) {
+            return;
+        }
+        synchronized (this) {
+            DefinitionIndex definitions = lazyDefinitions;
+            if (definitions != null) {
+                types.putAll(definitions.types());
+                scalarTypes.putAll(definitions.scalars());
+                typeExtensions.putAll(definitions.typeExtensions());
+                schema = definitions.schemaDefinition();
+                index(types.values(), scalarTypes.values(), typeExtensions.values());
+                if (schema != null) {
+                    structuralHashes.addSchema(schema);
+                }
+                lazyDefinitions = null;
+            }
+        }
+    }
+
+    private void index(TypeDefinition typeDefinition) {
+        referenceGraph.add(typeDefinition);
+        structuralHashes.add(typeDefinition, referenceGraph);
+    }
+
+    private void index(Collection<TypeDefinition> typeDefinitions, Collection<ScalarTypeDefinition> scalarTypeDefinitions, Collection<List<TypeExtensionDefinition>> typeExtensionLists) {
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            index(typeDefinition);
+        }
+        for (ScalarTypeDefinition scalarTypeDefinition : scalarTypeDefinitions) {
+            index(scalarTypeDefinition);
+        }
+        for (List<TypeExtensionDefinition> typeExtensionList : typeExtensionLists) {
+            for (TypeExtensionDefinition typeExtension : typeExtensionList) {
+                index(typeExtension);
+            }
+        }
+    }
+
+    /**
+     * The types a type refers to through its fields and their arguments, the interfaces it implements, its union
+     * members or its input fields, its type extensions included
+     *
+     * @param typeName the name of the type
+     *
+     * @return the names of the referenced types, which need not be defined
+     */
+    public Set<String> referencedTypes(String typeName) {
+        parseDefinitions();
+        return readOnly(referenceGraph.references(typeName));
+    }
+
+    /**
+     * The types that refer to a type, see {@link #referencedTypes(String)}
+     *
+     * @param typeName the name of the type
+     *
+     * @return the names of the referring types
+     */
+    public Set<String> referencingTypes(String typeName) {
+        parseDefinitions();
+        return readOnly(referenceGraph.referrers(typeName));
+    }
+
+    /**
+     * @param interfaceName the name of an interface
+     *
+     * @return the names of the object types that implement it, directly or through a type extension
+     */
+    public Set<String> implementationsOf(String interfaceName) {
+        parseDefinitions();
+        return readOnly(referenceGraph.implementations(interfaceName));
+    }
+
+    /**
+     * Works out the types reachable from some others, say from the operation types of the schema, in time
+     * proportional to the references followed
+     *
+     * @param typeNames the names of the types to start from
+     *
+     * @return the names of the reachable types, the starting ones included, nearest first
+     */
+    public Set<String> reachableTypes(Collection<String> typeNames) {
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            return reachableLazily(definitions, typeNames, false);
+        }
+        return referenceGraph.reachableFrom(typeNames);
+    }
+
+    /**
+     * Walks the definitions of a lazily parsed registry from some types, parsing only the definitions of the types
+     * it reaches, in the same order as {@link TypeReferenceGraph#reachableFrom(Collection)}
+     */
+    private static Set<String> reachableLazily(DefinitionIndex definitions, Collection<String> typeNames, boolean withImplementations) {
+        TypeReferenceGraph reachedGraph = new TypeReferenceGraph();
+        Set<String> reachable = new LinkedHashSet<String>(typeNames);
+        Deque<String> work = new ArrayDeque<String>(typeNames);
+        while (!work.isEmpty()) {
+            String typeName = work.poll();
+            TypeDefinition typeDefinition = definitions.type(typeName);
+            if (typeDefinition != null) {
+                reachedGraph.add(typeDefinition);
+            }
+            for (TypeExtensionDefinition typeExtension : definitions.typeExtensions(typeName)) {
+                reachedGraph.add(typeExtension);
+            }
+            List<String> reachedNames = new ArrayList<String>(reachedGraph.references(typeName));
+            if (withImplementations) {
+                reachedNames.addAll(definitions.implementations(typeName));
+            }
+            for (String reachedName : reachedNames) {
+                if (reachable.add(reachedName)) {
+                    work.add(reachedName);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Returns a frozen copy of this registry with only the types a schema built from it can use: those reachable
+     * from the operation types of the schema definition, and from the given types, through fields, arguments,
+     * implemented interfaces, union members and input fields.  An interface also keeps the object types that
+     * implement it.  The type extensions of the kept types are kept too, as is the schema definition.
+     *
+     * A schema built from a shared library of types needs only a few of them, so pruning first means it is checked,
+     * flattened and built from those alone.  Pruning a lazily parsed registry parses only the definitions of the
+     * types it keeps.
+     *
+     * @param keepTypeNames the names of types to keep whether the operations reach them or not, say types that are
+     *                      only returned through an interface
+     *
+     * @return the pruned registry
+     */
+    public TypeDefinitionRegistry prune(Collection<String> keepTypeNames) {
+        DefinitionIndex definitions = lazyDefinitions;
+        SchemaDefinition schemaDefinition = definitions != null ? definitions.schemaDefinition() : schema;
+        Set<String> roots = new LinkedHashSet<String>(keepTypeNames);
+        if (schemaDefinition != null) {
+            for (OperationTypeDefinition operationTypeDefinition : schemaDefinition.getOperationTypeDefinitions()) {
+                roots.add(TypeInfo.typeInfo(operationTypeDefinition.getType()).getName());
+            }
+        }
+
+        TypeDefinitionRegistry pruned;
+        if (definitions != null) {
+            Set<String> reachable = reachableLazily(definitions, roots, true);
+            pruned = new TypeDefinitionRegistry(reachable.size(), definitions.scalarNames().size(), definitions.extendedTypeNames().size());
+            for (String name : definitions.typeNames()) {
+                if (reachable.contains(name)) {
+                    pruned.types.put(name, definitions.type(name));
+                }
+            }
+            for (String name : definitions.scalarNames()) {
+                if (reachable.contains(name)) {
+                    pruned.scalarTypes.put(name, definitions.scalar(name));
+                }
+            }
+            for (String name : definitions.extendedTypeNames()) {
+                if (reachable.contains(name)) {
+                    pruned.typeExtensions.put(name, definitions.typeExtensions(name));
+                }
+            }
+        } else {
+            Set<String> reachable = referenceGraph.reachableWithImplementationsFrom(roots);
+            pruned = new TypeDefinitionRegistry(reachable.size(), scalarTypes.size(), typeExtensions.size());
+            for (TypeDefinition typeDefinition : types.values()) {
+                if (reachable.contains(typeDefinition.getName())) {
+                    pruned.types.put(typeDefinition.getName(), typeDefinition);
+                }
+            }
+            for (ScalarTypeDefinition scalarTypeDefinition : scalarTypes.values()) {
+                if (reachable.contains(scalarTypeDefinition.getName())) {
+                    pruned.scalarTypes.put(scalarTypeDefinition.getName(), scalarTypeDefinition);
+                }
+            }
+            for (Entry<String, List<TypeExtensionDefinition>> entry : typeExtensions.entrySet()) {
+                if (reachable.contains(entry.getKey())) {
+                    pruned.typeExtensions.put(entry.getKey(), new ArrayList<TypeExtensionDefinition>(entry.getValue()));
+                }
+            }
+        }
+        pruned.schema = schemaDefinition;
+        pruned.index(pruned.types.values(), pruned.scalarTypes.values(), pruned.typeExtensions.values());
+        if (schemaDefinition != null) {
+            pruned.structuralHashes.addSchema(schemaDefinition);
+        }
+        return pruned.freeze();
+    }
+
+    /**
+     * @return a frozen copy of this registry with only the types reachable from the operation types of its schema
+     * definition, see {@link #prune(Collection)}
+     */
+    public TypeDefinitionRegistry prune() {
+        return prune(Collections.<String>emptySet());
+    }
+
+    /**
+     * A structural hash of a type that folds in the hashes of every type it refers to, directly or not, so it
+     * changes exactly when something the type depends on does.  It covers the names, types, directives and default
+     * values of the type and its type extensions but not where they were written, so it is the same on every node
+     * that parsed the same schema and can serve as a cache key for anything worked out from the type.
+     *
+     * The hashes of the definitions are kept up to date as they are added, the hash of a type is then worked out
+     * when first asked for and kept until a change reaches it.
+     *
+     * @param typeName the name of the type
+     *
+     * @return the hash, which for a type that is not defined depends on its name alone
+     */
+    public long structuralHash(String typeName) {
+        parseDefinitions();
+        return structuralHashes.typeHash(typeName, referenceGraph);
+    }
+
+    /**
+     * A structural hash of the whole registry, see {@link #structuralHash(String)}.  It does not depend on the order
+     * the definitions were added in, so two registries with the same definitions hash the same however they were
+     * merged, and comparing it is enough to tell whether two nodes have the same schema.  It is kept up to date as
+     * definitions are added and costs nothing to ask for.
+     *
+     * @return the hash
+     */
+    public long structuralHash() {
+        parseDefinitions();
+        return structuralHashes.rootHash();
+    }
+
+    /**
+     * Works out what changed between this registry and a newer one: the types, fields, arguments, input fields, enum
+     * values, union members and implemented interfaces that were added, removed or modified.  Only types whose
+     * {@link #structuralHash(String) structural hashes} differ are looked into, so diffing two large schemas that
+     * differ in a few places takes little longer than comparing a hash per type.
+     *
+     * A type is compared together with its type extensions, and the order of fields, arguments and values is not
+     * taken as a change.
+     *
+     * @param newTypeRegistry the newer registry
+     *
+     * @return the changes, type by type in the order of this registry followed by the types only the newer one has
+     */
+    public List<SchemaChange> diff(TypeDefinitionRegistry newTypeRegistry) {
+        parseDefinitions();
+        newTypeRegistry.parseDefinitions();
+        RegistryDiff registryDiff = new RegistryDiff(this, newTypeRegistry);
+        registryDiff.diffSchema(schema, newTypeRegistry.schema);
+        diffTypes(registryDiff, this, newTypeRegistry, true);
+        diffTypes(registryDiff, newTypeRegistry, this, false);
+        return registryDiff.changes();
+    }
+
+    // diffs every name one registry defines, or only those the other one does not when it has already been diffed
+    private static void diffTypes(RegistryDiff registryDiff, TypeDefinitionRegistry typeRegistry, TypeDefinitionRegistry otherTypeRegistry, boolean isOld) {
+        for (String name : typeRegistry.types.keySet()) {
+            diffType(registryDiff, name, otherTypeRegistry.defines(name), isOld);
+        }
+        for (String name : typeRegistry.scalarTypes.keySet()) {
+            if (!typeRegistry.types.containsKey(name)) {
+                diffType(registryDiff, name, otherTypeRegistry.defines(name), isOld);
+            }
+        }
+        for (String name : typeRegistry.typeExtensions.keySet()) {
+            if (!typeRegistry.types.containsKey(name) && !typeRegistry.scalarTypes.containsKey(name)) {
+                diffType(registryDiff, name, otherTypeRegistry.defines(name), isOld);
+            }
+        }
+    }
+
+    private static void diffType(RegistryDiff registryDiff, String name, boolean otherDefines, boolean isOld) {
+        if (isOld) {
+            registryDiff.diffType(name, true, otherDefines);
+        } else if (!otherDefines) {
+            registryDiff.diffType(name, false, true);
+        }
+    }
+
+    private boolean defines(String name) {
+        return types.containsKey(name) || scalarTypes.containsKey(name) || typeExtensions.containsKey(name);
+    }
+
+    /**
+     * The types whose own definition or type extensions changed since an earlier registry, by their
+     * {@link StructuralHashes#localHash(String) local hashes}, and every type that refers to one of them directly or
+     * not.  The rest refer to exactly the same definitions as before.
+     *
+     * @param previousRegistry the earlier registry
+     *
+     * @return the names of the changed types and the types that can reach them
+     */
+    Set<String> typesAffectedSince(TypeDefinitionRegistry previousRegistry) {
+        parseDefinitions();
+        previousRegistry.parseDefinitions();
+        Set<String> names = new LinkedHashSet<String>();
+        for (TypeDefinitionRegistry typeRegistry : Arrays.asList(this, previousRegistry)) {
+            names.addAll(typeRegistry.types.keySet());
+            names.addAll(typeRegistry.scalarTypes.keySet());
+            names.addAll(typeRegistry.typeExtensions.keySet());
+        }
+        Set<String> changedNames = new LinkedHashSet<String>();
+        for (String name : names) {
+            if (structuralHashes.localHash(name) != previousRegistry.structuralHashes.localHash(name)) {
+                changedNames.add(name);
+            }
+        }
+        return referenceGraph.reaching(changedNames);
+    }
+
+    StructuralHashes structuralHashes() {
+        return structuralHashes;
+    }
+
+    /**
+     * @return the type extensions of the named type, which must not be changed
+     */
+    List<TypeExtensionDefinition> typeExtensions(String typeName) {
+        List<TypeExtensionDefinition> typeExtensionList = typeExtensions.get(typeName);
+        return typeExtensionList == null ? Collections.<TypeExtensionDefinition>emptyList() : typeExtensionList;
+    }
+
+    // a frozen registry cannot change so it hands out its sets as they are
+    private Set<String> readOnly(Set<String> names) {
+        return isFrozen() ? names : new LinkedHashSet<String>(names);
+    }
+
     public Map<String, TypeDefinition> types() {
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            return definitions.types();
+        }
+        if (isFrozen()) {
+            return types;
+        }
         return new LinkedHashMap<String, TypeDefinition>(types);
     }
 
     public Map<String, ScalarTypeDefinition> scalars() {
+        if (isFrozen()) {
+            return frozenScalars;
+        }
         LinkedHashMap<String, ScalarTypeDefinition> scalars = new LinkedHashMap<String, ScalarTypeDefinition>(ScalarInfo.STANDARD_SCALAR_DEFINITIONS);
-        scalars.putAll(scalarTypes);
+        DefinitionIndex definitions = lazyDefinitions;
+        scalars.putAll(definitions != null ? definitions.scalars() : scalarTypes);
         return scalars;
     }
 
+    /**
+     * @return the scalars defined in this registry, without the standard ones
+     */
+    Map<String, ScalarTypeDefinition> customScalars() {
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            return definitions.scalars();
+        }
+        if (isFrozen()) {
+            return scalarTypes;
+        }
+        return new LinkedHashMap<String, ScalarTypeDefinition>(scalarTypes);
+    }
+
     public Map<String, List<TypeExtensionDefinition>> typeExtensions() {
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            return definitions.typeExtensions();
+        }
+        if (isFrozen()) {
+            return typeExtensions;
+        }
         return new LinkedHashMap<String, List<TypeExtensionDefinition>>(typeExtensions);
     }
 
@@ -226,15 +927,37 @@ public class TypeDefinitionRegistry {
     // }
 
     public SchemaDefinition schemaDefinition() {
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            return definitions.schemaDefinition();
+        }
         return schema;
     }    
 
+    /**
+     * Writes this registry as a binary snapshot that can be loaded again without parsing any schema text
+     *
+     * @param snapshotFile the file to write
+     * @param fingerprint  the fingerprint of the schema files this registry was parsed from
+     *
+     * @throws IOException if the snapshot cannot be written
+     *
+     * @see SchemaSnapshot
+     */
+    public void writeSnapshot(Path snapshotFile, byte[] fingerprint) throws IOException {
+        SchemaSnapshot.write(this, fingerprint, snapshotFile);
+    }
+
      private GraphQLError handleReDefinition(TypeDefinition oldEntry, TypeDefinition newEntry) {
         return new TypeRedefinitionError(newEntry, oldEntry);
     }
 
     public boolean hasType(TypeName typeName) {
         String name = typeName.getName();
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            return definitions.contains(name) || ScalarInfo.STANDARD_SCALAR_DEFINITIONS.containsKey(name);
+        }
         return types.containsKey(name) || ScalarInfo.STANDARD_SCALAR_DEFINITIONS.containsKey(name) || scalarTypes.containsKey(name) || typeExtensions.containsKey(name);
     }
 
@@ -261,14 +984,30 @@ public class TypeDefinitionRegistry {
     // }
 
     public TypeDefinition getType(String typeName) {
+        DefinitionIndex definitions = lazyDefinitions;
+        if (definitions != null) {
+            TypeDefinition typeDefinition = definitions.type(typeName);
+            if (typeDefinition == null) {
+                typeDefinition = definitions.scalar(typeName);
+            }
+            if (typeDefinition == null) {
+                typeDefinition = ScalarInfo.STANDARD_SCALAR_DEFINITIONS.get(typeName);
+            }
+            return typeDefinition;
+        }
+        if (symbols != null) {
+            int id = symbols.id(typeName);
+            return id == -1 ? null : definitionsById[id];
+        }
         TypeDefinition typeDefinition = types.get(typeName);
         if (typeDefinition != null) {
             return typeDefinition;
         }
-        typeDefinition = scalars().get(typeName);
+        // looked up directly rather than through scalars(), which copies every scalar, custom ones taking precedence
+        typeDefinition = scalarTypes.get(typeName);
         if (typeDefinition != null) {
             return typeDefinition;
         }
-        return null;
+        return ScalarInfo.STANDARD_SCALAR_DEFINITIONS.get(typeName);
     }    
 }
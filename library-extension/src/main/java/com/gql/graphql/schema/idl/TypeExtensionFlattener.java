@@ -0,0 +1,120 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.GraphQLError;
+import graphql.language.Directive;
+import graphql.language.FieldDefinition;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeExtensionDefinition;
+import com.gql.graphql.schema.idl.errors.TypeExtensionFieldRedefinitionError;
+import com.gql.graphql.schema.idl.errors.TypeExtensionMissingBaseTypeError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds the type extensions of a frozen registry into the object types they extend, see
+ * {@link TypeDefinitionRegistry#flatten()}.  A flattener is made once per registry and keeps what it made.
+ */
+class TypeExtensionFlattener {
+
+    private final TypeDefinitionRegistry flattenedRegistry;
+    private final List<GraphQLError> errors;
+
+    TypeExtensionFlattener(TypeDefinitionRegistry typeRegistry) {
+        List<GraphQLError> errors = new ArrayList<GraphQLError>();
+        Map<String, List<TypeExtensionDefinition>> typeExtensions = typeRegistry.typeExtensions();
+        if (typeExtensions.isEmpty()) {
+            this.flattenedRegistry = typeRegistry;
+            this.errors = Collections.emptyList();
+            return;
+        }
+
+        TypeDefinitionRegistry flattened = new TypeDefinitionRegistry();
+        for (TypeDefinition typeDefinition : typeRegistry.types().values()) {
+            List<TypeExtensionDefinition> extensions = typeExtensions.get(typeDefinition.getName());
+            if (extensions != null && typeDefinition instanceof ObjectTypeDefinition) {
+                typeDefinition = flatten((ObjectTypeDefinition) typeDefinition, extensions, errors);
+            }
+            flattened.add(typeDefinition);
+        }
+        for (TypeDefinition scalarDefinition : typeRegistry.customScalars().values()) {
+            flattened.add(scalarDefinition);
+        }
+        if (typeRegistry.schemaDefinition() != null) {
+            flattened.add(typeRegistry.schemaDefinition());
+        }
+        // extensions of types that are not objects are dropped
+        for (List<TypeExtensionDefinition> extensions : typeExtensions.values()) {
+            if (!(typeRegistry.getType(extensions.get(0).getName()) instanceof ObjectTypeDefinition)) {
+                for (TypeExtensionDefinition typeExtension : extensions) {
+                    errors.add(new TypeExtensionMissingBaseTypeError(typeExtension));
+                }
+            }
+        }
+        this.flattenedRegistry = flattened.freeze();
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return the flattened registry, which has no type extensions
+     */
+    TypeDefinitionRegistry flattenedRegistry() {
+        return flattenedRegistry;
+    }
+
+    /**
+     * @return the type extensions that had no object type to extend and the fields they redefined with another type
+     */
+    List<GraphQLError> errors() {
+        return errors;
+    }
+
+    /**
+     * One definition of an object type with the fields, interfaces and directives of the type followed by those of
+     * each of its extensions in turn.  Whatever is named twice is kept the first time only, and a field that comes
+     * again with another type is reported.
+     */
+    private static ObjectTypeDefinition flatten(ObjectTypeDefinition objectType, List<TypeExtensionDefinition> typeExtensions, List<GraphQLError> errors) {
+        ObjectTypeDefinition flattened = new ObjectTypeDefinition(objectType.getName());
+        flattened.setSourceLocation(objectType.getSourceLocation());
+
+        Map<String, FieldDefinition> fields = new LinkedHashMap<String, FieldDefinition>();
+        Map<String, Type> interfaces = new LinkedHashMap<String, Type>();
+        Map<String, Directive> directives = new LinkedHashMap<String, Directive>();
+        addAll(objectType, fields, interfaces, directives, errors);
+        for (TypeExtensionDefinition typeExtension : typeExtensions) {
+            addAll(typeExtension, fields, interfaces, directives, errors);
+        }
+        flattened.getFieldDefinitions().addAll(fields.values());
+        flattened.getImplements().addAll(interfaces.values());
+        flattened.getDirectives().addAll(directives.values());
+        return flattened;
+    }
+
+    private static void addAll(ObjectTypeDefinition definition, Map<String, FieldDefinition> fields, Map<String, Type> interfaces, Map<String, Directive> directives, List<GraphQLError> errors) {
+        for (FieldDefinition fieldDefinition : definition.getFieldDefinitions()) {
+            FieldDefinition earlierField = fields.get(fieldDefinition.getName());
+            if (earlierField == null) {
+                fields.put(fieldDefinition.getName(), fieldDefinition);
+            } else if (StructuralHashes.hash(earlierField.getType()) != StructuralHashes.hash(fieldDefinition.getType())) {
+                errors.add(new TypeExtensionFieldRedefinitionError(definition, fieldDefinition));
+            }
+        }
+        for (Type type : definition.getImplements()) {
+            String interfaceName = TypeInfo.typeInfo(type).getName();
+            if (!interfaces.containsKey(interfaceName)) {
+                interfaces.put(interfaceName, type);
+            }
+        }
+        for (Directive directive : definition.getDirectives()) {
+            if (!directives.containsKey(directive.getName())) {
+                directives.put(directive.getName(), directive);
+            }
+        }
+    }
+}
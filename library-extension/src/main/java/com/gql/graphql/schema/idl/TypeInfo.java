@@ -8,8 +8,6 @@ import graphql.schema.GraphQLList;
 import graphql.schema.GraphQLNonNull;
 import graphql.schema.GraphQLType;
 
-import java.util.Stack;
-
 /**
  * This helper gives you access to the type info given a type definition
  */
@@ -19,23 +17,32 @@ public class TypeInfo {
         return new TypeInfo(type);
     }
 
+    /**
+     * The {@link #decoration()} of a type that is not wrapped in any list or non null
+     */
+    static final int UNDECORATED = 1;
+
     private final Type rawType;
     private final TypeName typeName;
-    private final Stack<Class<?>> decoration = new Stack<Class<?>>();
+    private final int decoration;
 
     public TypeInfo(Type type) {
         this.rawType = type;
+        int decoration = UNDECORATED;
         while (!(type instanceof TypeName)) {
+            if (Integer.numberOfLeadingZeros(decoration) == 1) {
+                throw new IllegalArgumentException("A type can be wrapped in at most 30 lists and non nulls");
+            }
             if (type instanceof NonNullType) {
-                decoration.push(NonNullType.class);
+                decoration = decoration << 1 | 1;
                 type = ((NonNullType) type).getType();
-            }
-            if (type instanceof ListType) {
-                decoration.push(ListType.class);
+            } else if (type instanceof ListType) {
+                decoration = decoration << 1;
                 type = ((ListType) type).getType();
             }
         }
         this.typeName = (TypeName) type;
+        this.decoration = decoration;
     }
 
     public Type getRawType() {
@@ -50,6 +57,18 @@ public class TypeInfo {
         return typeName.getName();
     }
 
+    /**
+     * The lists and non nulls the type is wrapped in as a bitmask, one bit for each from the innermost in the lowest
+     * bit outwards, set for a non null and clear for a list, below a leading one bit.  So {@code Episode} is
+     * {@code 1}, {@code ID!} is {@code 11}, {@code [Episode]!} is {@code 110} and {@code [Episode!]} is {@code 101} in
+     * binary, and two types are wrapped alike exactly when their decorations are equal.
+     *
+     * @return the decoration
+     */
+    int decoration() {
+        return decoration;
+    }
+
     /**
      * This will decorate a graphql type with the original hierarchy of non null and list'ness
      * it originally contained in its definition type
@@ -62,14 +81,11 @@ public class TypeInfo {
     public <T extends GraphQLType> T decorate(GraphQLType objectType) {
 
         GraphQLType out = objectType;
-        Stack<Class<?>> wrappingStack = new Stack<Class<?>>();
-        wrappingStack.addAll(this.decoration);
-        while (!wrappingStack.isEmpty()) {
-            Class<?> clazz = wrappingStack.pop();
-            if (clazz.equals(NonNullType.class)) {
+        // from the innermost wrapper outwards
+        for (int wrappers = decoration; wrappers != UNDECORATED; wrappers >>>= 1) {
+            if ((wrappers & 1) != 0) {
                 out = new GraphQLNonNull(out);
-            }
-            if (clazz.equals(ListType.class)) {
+            } else {
                 out = new GraphQLList(out);
             }
         }
@@ -83,7 +99,7 @@ public class TypeInfo {
         return "TypeInfo{" +
                 "rawType=" + rawType +
                 ", typeName=" + typeName +
-                ", isNonNull=" + decoration +
+                ", decoration=" + Integer.toBinaryString(decoration) +
                 '}';
     }
 }
@@ -0,0 +1,201 @@
+package com.gql.graphql.schema.idl;
+
+import graphql.language.FieldDefinition;
+import graphql.language.InputObjectTypeDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.Type;
+import graphql.language.TypeDefinition;
+import graphql.language.UnionTypeDefinition;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The references between the types of a registry, kept in both directions.  A type refers to the types of its fields,
+ * their arguments, the interfaces it implements, its union members and its input fields, and the references of a
+ * type extension count as references of the type it extends.  Interfaces also know the object types that implement
+ * them.
+ *
+ * Definitions are only ever added, as they are to a registry, so each is indexed once and every question is
+ * answered from the index rather than by walking the definitions again.
+ */
+final class TypeReferenceGraph {
+
+    private final Map<String, Set<String>> references = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> referrers = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> implementations = new HashMap<String, Set<String>>();
+
+    /**
+     * Indexes the references of a type definition or a type extension
+     */
+    void add(TypeDefinition typeDefinition) {
+        String name = typeDefinition.getName();
+        Set<String> referencedNames = new LinkedHashSet<String>();
+        addReferencedNames(typeDefinition, referencedNames);
+        for (String referencedName : referencedNames) {
+            if (edges(references, name).add(referencedName)) {
+                edges(referrers, referencedName).add(name);
+            }
+        }
+        if (typeDefinition instanceof ObjectTypeDefinition) {
+            for (Type type : ((ObjectTypeDefinition) typeDefinition).getImplements()) {
+                edges(implementations, TypeInfo.typeInfo(type).getName()).add(name);
+            }
+        }
+    }
+
+    /**
+     * @return the names of the types the named type refers to
+     */
+    Set<String> references(String typeName) {
+        return edgesOf(references, typeName);
+    }
+
+    /**
+     * @return the names of the types that refer to the named type
+     */
+    Set<String> referrers(String typeName) {
+        return edgesOf(referrers, typeName);
+    }
+
+    /**
+     * @return the names of the object types that implement the named interface
+     */
+    Set<String> implementations(String interfaceName) {
+        return edgesOf(implementations, interfaceName);
+    }
+
+    /**
+     * @return the names of the types reachable from the named ones, the named ones included, in breadth first order
+     */
+    Set<String> reachableFrom(Collection<String> typeNames) {
+        Set<String> reachable = new LinkedHashSet<String>(typeNames);
+        Deque<String> work = new ArrayDeque<String>(typeNames);
+        while (!work.isEmpty()) {
+            Set<String> referencedNames = references.get(work.poll());
+            if (referencedNames != null) {
+                for (String referencedName : referencedNames) {
+                    if (reachable.add(referencedName)) {
+                        work.add(referencedName);
+                    }
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Like {@link #reachableFrom(Collection)} but an interface also reaches the object types that implement it, as
+     * those are what a field of the interface type can return
+     *
+     * @return the names of the reachable types, the named ones included, in breadth first order
+     */
+    Set<String> reachableWithImplementationsFrom(Collection<String> typeNames) {
+        Set<String> reachable = new LinkedHashSet<String>(typeNames);
+        Deque<String> work = new ArrayDeque<String>(typeNames);
+        while (!work.isEmpty()) {
+            String typeName = work.poll();
+            reach(references.get(typeName), reachable, work);
+            reach(implementations.get(typeName), reachable, work);
+        }
+        return reachable;
+    }
+
+    private static void reach(Set<String> reachedNames, Set<String> reachable, Deque<String> work) {
+        if (reachedNames != null) {
+            for (String reachedName : reachedNames) {
+                if (reachable.add(reachedName)) {
+                    work.add(reachedName);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the names of the types the named one is reachable from, the named one included
+     */
+    Set<String> reaching(String typeName) {
+        return reaching(Collections.singleton(typeName));
+    }
+
+    /**
+     * @return the names of the types any of the named ones is reachable from, the named ones included
+     */
+    Set<String> reaching(Collection<String> typeNames) {
+        Set<String> reaching = new LinkedHashSet<String>(typeNames);
+        Deque<String> work = new ArrayDeque<String>(reaching);
+        while (!work.isEmpty()) {
+            Set<String> referringNames = referrers.get(work.poll());
+            if (referringNames != null) {
+                for (String referringName : referringNames) {
+                    if (reaching.add(referringName)) {
+                        work.add(referringName);
+                    }
+                }
+            }
+        }
+        return reaching;
+    }
+
+    private static Set<String> edges(Map<String, Set<String>> index, String name) {
+        Set<String> edges = index.get(name);
+        if (edges == null) {
+            edges = new LinkedHashSet<String>();
+            index.put(name, edges);
+        }
+        return edges;
+    }
+
+    private static Set<String> edgesOf(Map<String, Set<String>> index, String name) {
+        Set<String> edges = index.get(name);
+        return edges == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(edges);
+    }
+
+    /**
+     * Adds the names of the types a type definition or a type extension refers to
+     *
+     * @param typeDefinition  the definition
+     * @param referencedNames where the names are added
+     */
+    static void addReferencedNames(TypeDefinition typeDefinition, Collection<String> referencedNames) {
+        if (typeDefinition instanceof ObjectTypeDefinition) {
+            ObjectTypeDefinition objectTypeDefinition = (ObjectTypeDefinition) typeDefinition;
+            addTypeNames(objectTypeDefinition.getImplements(), referencedNames);
+            addFieldReferences(objectTypeDefinition.getFieldDefinitions(), referencedNames);
+        } else if (typeDefinition instanceof InterfaceTypeDefinition) {
+            addFieldReferences(((InterfaceTypeDefinition) typeDefinition).getFieldDefinitions(), referencedNames);
+        } else if (typeDefinition instanceof UnionTypeDefinition) {
+            addTypeNames(((UnionTypeDefinition) typeDefinition).getMemberTypes(), referencedNames);
+        } else if (typeDefinition instanceof InputObjectTypeDefinition) {
+            addInputValueReferences(((InputObjectTypeDefinition) typeDefinition).getInputValueDefinitions(), referencedNames);
+        }
+    }
+
+    private static void addFieldReferences(List<FieldDefinition> fieldDefinitions, Collection<String> referencedNames) {
+        for (FieldDefinition fieldDefinition : fieldDefinitions) {
+            referencedNames.add(TypeInfo.typeInfo(fieldDefinition.getType()).getName());
+            addInputValueReferences(fieldDefinition.getInputValueDefinitions(), referencedNames);
+        }
+    }
+
+    private static void addInputValueReferences(List<InputValueDefinition> inputValueDefinitions, Collection<String> referencedNames) {
+        for (InputValueDefinition inputValueDefinition : inputValueDefinitions) {
+            referencedNames.add(TypeInfo.typeInfo(inputValueDefinition.getType()).getName());
+        }
+    }
+
+    private static void addTypeNames(List<Type> types, Collection<String> referencedNames) {
+        for (Type type : types) {
+            referencedNames.add(TypeInfo.typeInfo(type).getName());
+        }
+    }
+}
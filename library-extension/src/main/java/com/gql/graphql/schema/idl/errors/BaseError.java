@@ -5,6 +5,7 @@ import graphql.GraphQLError;
 import graphql.GraphQLException;
 import graphql.language.Node;
 import graphql.language.SourceLocation;
+import com.gql.graphql.language.NamedSourceLocation;
 
 import java.util.Collections;
 import java.util.List;
@@ -18,20 +19,36 @@ class BaseError extends GraphQLException implements GraphQLError {
     protected static final SourceLocation NO_WHERE = new SourceLocation(-1, -1);
 
     private Node node;
+    private SourceLocation sourceLocation;
 
     public BaseError(Node node, String msg) {
         super(msg);
         this.node = node;
     }
 
+    public BaseError(SourceLocation sourceLocation, String msg) {
+        super(msg);
+        this.sourceLocation = sourceLocation;
+    }
+
     public static String lineCol(Node node) {
-        SourceLocation sourceLocation = node.getSourceLocation() == null ? NO_WHERE : node.getSourceLocation();
+        return lineCol(node.getSourceLocation());
+    }
+
+    public static String lineCol(SourceLocation sourceLocation) {
+        sourceLocation = sourceLocation == null ? NO_WHERE : sourceLocation;
+        if (sourceLocation instanceof NamedSourceLocation) {
+            return String.format("[@%s:%d:%d]", ((NamedSourceLocation) sourceLocation).getSourceName(), sourceLocation.getLine(), sourceLocation.getColumn());
+        }
         return String.format("[@%d:%d]", sourceLocation.getLine(), sourceLocation.getColumn());
     }
 
     @Override
     public List<SourceLocation> getLocations() {
-        return node == null ? Collections.singletonList(NO_WHERE) : Collections.singletonList(node.getSourceLocation());
+        if (node != null) {
+            return Collections.singletonList(node.getSourceLocation());
+        }
+        return Collections.singletonList(sourceLocation == null ? NO_WHERE : sourceLocation);
     }
 
     @Override
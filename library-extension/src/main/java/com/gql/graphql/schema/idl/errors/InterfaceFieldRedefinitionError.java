@@ -1,14 +1,20 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// import graphql.language.FieldDefinition;
-// import graphql.language.InterfaceTypeDefinition;
-// import graphql.language.ObjectTypeDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ObjectTypeDefinition;
 
-// import static java.lang.String.format;
+import static java.lang.String.format;
 
-// public class InterfaceFieldRedefinitionError extends BaseError {
-//     public InterfaceFieldRedefinitionError(String typeOfType, ObjectTypeDefinition objectType, InterfaceTypeDefinition interfaceTypeDef, FieldDefinition objectFieldDef, String objectFieldType, String interfaceFieldType) {
-//         super(objectType, format("The %s type '%s' %s has tried to redefine field '%s' defined via interface '%s' %s from '%s' to '%s",
-//                 typeOfType, objectType.getName(), lineCol(objectType), objectFieldDef.getName(), interfaceTypeDef.getName(), lineCol(interfaceTypeDef), interfaceFieldType, objectFieldType));
-//     }
-// }
+public class InterfaceFieldRedefinitionError extends BaseError {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = -1840038019859553984L;
+
+    public InterfaceFieldRedefinitionError(String typeOfType, ObjectTypeDefinition objectType, InterfaceTypeDefinition interfaceTypeDef, FieldDefinition objectFieldDef, String objectFieldType, String interfaceFieldType) {
+        super(objectType, format("The %s type '%s' %s has tried to redefine field '%s' defined via interface '%s' %s from '%s' to '%s",
+                typeOfType, objectType.getName(), lineCol(objectType), objectFieldDef.getName(), interfaceTypeDef.getName(), lineCol(interfaceTypeDef), interfaceFieldType, objectFieldType));
+    }
+}
@@ -1,14 +1,20 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// import graphql.language.FieldDefinition;
-// import graphql.language.InterfaceTypeDefinition;
-// import graphql.language.ObjectTypeDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ObjectTypeDefinition;
 
-// import static java.lang.String.format;
+import static java.lang.String.format;
 
-// public class MissingInterfaceFieldError extends BaseError {
-//     public MissingInterfaceFieldError(String typeOfType, ObjectTypeDefinition objectType, InterfaceTypeDefinition interfaceTypeDef, FieldDefinition interfaceFieldDef) {
-//         super(objectType, format("The %s type '%s' %s does not have a field '%s' required via interface '%s' %s",
-//                 typeOfType, objectType.getName(), lineCol(objectType), interfaceFieldDef.getName(), interfaceTypeDef.getName(), lineCol(interfaceTypeDef)));
-//     }
-// }
+public class MissingInterfaceFieldError extends BaseError {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = -1367455196567784549L;
+
+    public MissingInterfaceFieldError(String typeOfType, ObjectTypeDefinition objectType, InterfaceTypeDefinition interfaceTypeDef, FieldDefinition interfaceFieldDef) {
+        super(objectType, format("The %s type '%s' %s does not have a field '%s' required via interface '%s' %s",
+                typeOfType, objectType.getName(), lineCol(objectType), interfaceFieldDef.getName(), interfaceTypeDef.getName(), lineCol(interfaceTypeDef)));
+    }
+}
@@ -1,11 +1,18 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// import static java.lang.String.format;
+import graphql.language.Node;
 
-// public class MissingScalarImplementationError extends BaseError {
+import static java.lang.String.format;
 
-//     public MissingScalarImplementationError(String scalarName) {
-//         super(null, format("There is no scalar implementation for the named  '%s' scalar type", scalarName));
-//     }
+public class MissingScalarImplementationError extends BaseError {
 
-// }
+    /**
+     *
+     */
+    private static final long serialVersionUID = -8928295235131167502L;
+
+    public MissingScalarImplementationError(String scalarName) {
+        super((Node) null, format("There is no scalar implementation for the named  '%s' scalar type", scalarName));
+    }
+
+}
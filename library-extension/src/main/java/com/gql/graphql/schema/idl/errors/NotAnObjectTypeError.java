@@ -0,0 +1,17 @@
+package com.gql.graphql.schema.idl.errors;
+
+import graphql.language.TypeDefinition;
+
+import static java.lang.String.format;
+
+public class NotAnObjectTypeError extends BaseError {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 2871049546377621384L;
+
+    public NotAnObjectTypeError(TypeDefinition typeDefinition) {
+        super(typeDefinition, format("expected ObjectType, but found %s type %s", typeDefinition.getName(), lineCol(typeDefinition)));
+    }
+}
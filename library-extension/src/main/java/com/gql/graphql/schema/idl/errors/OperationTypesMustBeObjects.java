@@ -1,13 +1,18 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// import graphql.language.OperationTypeDefinition;
+import graphql.language.OperationTypeDefinition;
 
-// import static java.lang.String.format;
+import static java.lang.String.format;
 
-// public class OperationTypesMustBeObjects extends BaseError {
+public class OperationTypesMustBeObjects extends BaseError {
 
-//     public OperationTypesMustBeObjects(OperationTypeDefinition op) {
-//         super(op, format("The operation type '%s' MUST have a object type as its definition %s",
-//                 op.getName(), lineCol(op)));
-//     }
-// }
+    /**
+     *
+     */
+    private static final long serialVersionUID = 2869068918137224821L;
+
+    public OperationTypesMustBeObjects(OperationTypeDefinition op) {
+        super(op, format("The operation type '%s' MUST have a object type as its definition %s",
+                op.getName(), lineCol(op)));
+    }
+}
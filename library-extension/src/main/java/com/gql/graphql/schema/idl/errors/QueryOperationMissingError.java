@@ -1,8 +1,15 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// public class QueryOperationMissingError extends BaseError {
+import graphql.language.Node;
 
-//     public QueryOperationMissingError() {
-//         super(null, "A schema MUST have a 'query' operation defined");
-//     }
-// }
+public class QueryOperationMissingError extends BaseError {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 5696387218432177826L;
+
+    public QueryOperationMissingError() {
+        super((Node) null, "A schema MUST have a 'query' operation defined");
+    }
+}
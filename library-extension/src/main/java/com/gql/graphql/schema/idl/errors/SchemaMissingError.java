@@ -1,8 +1,15 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// public class SchemaMissingError extends BaseError {
+import graphql.language.Node;
 
-//     public SchemaMissingError() {
-//         super(null, "There is no top level schema object defined");
-//     }
-// }
+public class SchemaMissingError extends BaseError {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 652901480206937547L;
+
+    public SchemaMissingError() {
+        super((Node) null, "There is no top level schema object defined");
+    }
+}
@@ -0,0 +1,23 @@
+package com.gql.graphql.schema.idl.errors;
+
+import graphql.ErrorType;
+import graphql.language.SourceLocation;
+
+import static java.lang.String.format;
+
+public class SchemaSyntaxError extends BaseError {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 4127003617263941052L;
+
+    public SchemaSyntaxError(SourceLocation sourceLocation, String problem) {
+        super(sourceLocation, format("Invalid schema syntax %s : %s", lineCol(sourceLocation), problem));
+    }
+
+    @Override
+    public ErrorType getErrorType() {
+        return ErrorType.InvalidSyntax;
+    }
+}
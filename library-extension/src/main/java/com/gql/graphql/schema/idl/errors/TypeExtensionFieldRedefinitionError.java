@@ -1,16 +1,21 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// import graphql.language.FieldDefinition;
-// import graphql.language.TypeDefinition;
+import graphql.language.FieldDefinition;
+import graphql.language.TypeDefinition;
 
-// import static java.lang.String.format;
+import static java.lang.String.format;
 
-// public class TypeExtensionFieldRedefinitionError extends BaseError {
+public class TypeExtensionFieldRedefinitionError extends BaseError {
 
-//     public TypeExtensionFieldRedefinitionError(TypeDefinition typeDefinition, FieldDefinition fieldDefinition) {
-//         super(typeDefinition,
-//                 format("'%s' extension type %s tried to redefine field '%s' %s",
-//                         typeDefinition.getName(), BaseError.lineCol(typeDefinition), fieldDefinition.getName(), BaseError.lineCol(fieldDefinition)
-//                 ));
-//     }
-// }
+    /**
+     *
+     */
+    private static final long serialVersionUID = -5003149872512630691L;
+
+    public TypeExtensionFieldRedefinitionError(TypeDefinition typeDefinition, FieldDefinition fieldDefinition) {
+        super(typeDefinition,
+                format("'%s' extension type %s tried to redefine field '%s' %s",
+                        typeDefinition.getName(), BaseError.lineCol(typeDefinition), fieldDefinition.getName(), BaseError.lineCol(fieldDefinition)
+                ));
+    }
+}
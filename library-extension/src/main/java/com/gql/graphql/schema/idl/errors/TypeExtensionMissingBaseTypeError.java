@@ -1,15 +1,20 @@
-// package graphql.schema.idl.errors;
+package com.gql.graphql.schema.idl.errors;
 
-// import graphql.language.TypeExtensionDefinition;
+import graphql.language.TypeExtensionDefinition;
 
-// import static java.lang.String.format;
+import static java.lang.String.format;
 
-// public class TypeExtensionMissingBaseTypeError extends BaseError {
+public class TypeExtensionMissingBaseTypeError extends BaseError {
 
-//     public TypeExtensionMissingBaseTypeError(TypeExtensionDefinition typeExtensionDefinition) {
-//         super(typeExtensionDefinition,
-//                 format("The extension '%s' type %s is missing its base object type",
-//                         typeExtensionDefinition.getName(), BaseError.lineCol(typeExtensionDefinition)
-//                 ));
-//     }
-// }
+    /**
+     *
+     */
+    private static final long serialVersionUID = 7988313051067107703L;
+
+    public TypeExtensionMissingBaseTypeError(TypeExtensionDefinition typeExtensionDefinition) {
+        super(typeExtensionDefinition,
+                format("The extension '%s' type %s is missing its base object type",
+                        typeExtensionDefinition.getName(), BaseError.lineCol(typeExtensionDefinition)
+                ));
+    }
+}
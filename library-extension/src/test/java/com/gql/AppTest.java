@@ -4,9 +4,56 @@ import static org.junit.Assume.assumeFalse;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.FileReader;
+import java.net.URL;
+import java.net.URLClassLoader;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.gql.graphql.schema.idl.ConcurrentTypeDefinitionRegistry;
+import com.gql.graphql.schema.idl.ParsedSchemaCache;
+import com.gql.graphql.schema.idl.PersistentTypeDefinitionRegistry;
+import com.gql.graphql.schema.idl.RuntimeWiring;
+import com.gql.graphql.schema.idl.SchemaChange;
+import com.gql.graphql.schema.idl.SchemaCompiler;
+import com.gql.graphql.schema.idl.SchemaGenerator;
+import com.gql.graphql.schema.idl.SchemaParser;
+import com.gql.graphql.schema.idl.SchemaParserOptions;
+import com.gql.graphql.schema.idl.SchemaPrinter;
+import com.gql.graphql.schema.idl.SchemaReloader;
+import com.gql.graphql.schema.idl.SchemaSnapshot;
+import com.gql.graphql.schema.idl.TypeDefinitionRegistry;
+import com.gql.graphql.schema.idl.errors.SchemaProblem;
+
+import graphql.language.AstComparator;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.SourceLocation;
+import graphql.language.TypeDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLNonNull;
+import graphql.schema.GraphQLObjectType;
+import graphql.GraphQLError;
 import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLUnionType;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -96,4 +143,732 @@ public class AppTest extends TestCase {
         GraphQLSchema gqlSchema = app.parseSchema(getFileContents(path + blogSchema));
         assertNotNull(gqlSchema);
     }
+
+    @org.junit.Test
+    public void testParseStarWarsSchemaFromFile() {
+        App app = new App();
+        GraphQLSchema gqlSchema = app.parseSchema(new File(path + starWarsSchema));
+        assertNotNull(gqlSchema);
+        assertNotNull(gqlSchema.getType("Droid"));
+    }
+
+    @org.junit.Test
+    public void testParseStreamMatchesParseString() throws Exception {
+        SchemaParser schemaParser = new SchemaParser();
+        TypeDefinitionRegistry fromString = schemaParser.parse(getFileContents(path + blogSchema));
+        TypeDefinitionRegistry fromStream = schemaParser.parse(new FileInputStream(path + blogSchema));
+
+        assertEquals(fromString.types().keySet(), fromStream.types().keySet());
+        assertNotNull(fromStream.schemaDefinition());
+    }
+
+    @org.junit.Test
+    public void testParseReportsSyntaxErrors() {
+        try {
+            new SchemaParser().parse("type Query { hero: }");
+            fail("expected a schema problem");
+        } catch (SchemaProblem e) {
+            assertEquals(1, e.getErrors().size());
+        }
+        SchemaParser sdlParser = new SchemaParser(SchemaParserOptions.newOptions().parserType(SchemaParserOptions.ParserType.SDL).build());
+        for (SchemaParser schemaParser : Arrays.asList(new SchemaParser(), sdlParser)) {
+            try {
+                schemaParser.parse("type A {\n  b: Int\n  c: ]\n}");
+                fail("expected a schema problem");
+            } catch (SchemaProblem e) {
+                assertEquals(Collections.singletonList(new SourceLocation(3, 6)), e.getErrors().get(0).getLocations());
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testParseAllMergesFiles() {
+        List<Path> paths = Arrays.asList(Paths.get(path + starWarsSchema), Paths.get(path + blogSchema));
+        try {
+            new SchemaParser().parseAll(paths);
+            fail("both files define a schema");
+        } catch (SchemaProblem e) {
+            assertEquals(1, e.getErrors().size());
+            assertTrue(e.getErrors().get(0).getMessage().contains(blogSchema));
+        }
+
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parseAll(Collections.singletonList(Paths.get(path + starWarsSchema)));
+        assertNotNull(typeRegistry.getType("Droid"));
+    }
+
+    @org.junit.Test
+    public void testSdlParserMatchesAntlrParser() {
+        SchemaParser antlrParser = new SchemaParser();
+        SchemaParser sdlParser = new SchemaParser(SchemaParserOptions.newOptions().parserType(SchemaParserOptions.ParserType.SDL).build());
+        String starWars = getFileContents(path + starWarsSchema);
+
+        TypeDefinitionRegistry fromAntlr = antlrParser.parse(starWars);
+        TypeDefinitionRegistry fromSdl = sdlParser.parse(starWars);
+        assertEquals(fromAntlr.types().keySet(), fromSdl.types().keySet());
+        for (String name : fromAntlr.types().keySet()) {
+            assertTrue(name, new AstComparator().isEqual(fromAntlr.types().get(name), fromSdl.types().get(name)));
+            assertEquals(name, fromAntlr.types().get(name).getSourceLocation(), fromSdl.types().get(name).getSourceLocation());
+        }
+        assertTrue(new AstComparator().isEqual(fromAntlr.schemaDefinition(), fromSdl.schemaDefinition()));
+
+        try {
+            sdlParser.parse("type Query {\n  hero Character\n}");
+            fail("expected a schema problem");
+        } catch (SchemaProblem e) {
+            assertEquals(Collections.singletonList(new SourceLocation(2, 8)), e.getErrors().get(0).getLocations());
+            assertTrue(e.getErrors().get(0).getMessage().contains("expected ':' but found 'Character'"));
+        }
+    }
+
+    public void testWarmUpThenParse() {
+        SchemaParser schemaParser = new SchemaParser();
+        schemaParser.warmUp();
+        new SchemaParser(SchemaParserOptions.newOptions().parserType(SchemaParserOptions.ParserType.SDL).build()).warmUp();
+
+        // the per thread parser must be left ready for the next input
+        assertNotNull(schemaParser.parse(getFileContents(path + starWarsSchema)).getType("Droid"));
+        try {
+            schemaParser.parse("type Query { hero: }");
+            fail("expected a schema problem");
+        } catch (SchemaProblem e) {
+            assertEquals(1, e.getErrors().size());
+        }
+        assertNotNull(schemaParser.parse(getFileContents(path + blogSchema)).getType("Post"));
+    }
+
+    public void testReloadRebuildsOnlyAffectedTypes() throws Exception {
+        String starWars = getFileContents(path + starWarsSchema);
+        int split = starWars.indexOf("enum Episode");
+        Path directory = Files.createTempDirectory("schema");
+        Path queryFile = Files.write(directory.resolve("query.graphqls"), starWars.substring(0, split).getBytes("UTF-8"));
+        Path charactersFile = Files.write(directory.resolve("characters.graphqls"), starWars.substring(split).getBytes("UTF-8"));
+        try {
+            SchemaReloader reloader = new SchemaReloader(directory, RuntimeWiring.newRuntimeWiring().build());
+            GraphQLSchema before = reloader.load();
+
+            Files.write(charactersFile, starWars.substring(split).replace("primaryFunction: String", "primaryFunction: String\n    model: String").getBytes("UTF-8"));
+            GraphQLSchema after = reloader.reload(Collections.singletonList(charactersFile));
+
+            assertNotNull(((GraphQLObjectType) after.getType("Droid")).getFieldDefinition("model"));
+            assertNotSame(before.getType("QueryType"), after.getType("QueryType"));
+            assertSame(before.getType("Human"), after.getType("Human"));
+            assertSame(before.getType("Episode"), after.getType("Episode"));
+
+            Files.write(charactersFile, "type Droid {".getBytes("UTF-8"));
+            try {
+                reloader.reload(Collections.singletonList(charactersFile));
+                fail("expected a schema problem");
+            } catch (SchemaProblem e) {
+                assertSame(after, reloader.getSchema());
+            }
+        } finally {
+            Files.delete(queryFile);
+            Files.delete(charactersFile);
+            Files.delete(directory);
+        }
+    }
+
+    public void testWatcherSurvivesFailingReloadsAndListeners() throws Exception {
+        String starWars = getFileContents(path + starWarsSchema);
+        Path directory = Files.createTempDirectory("schema");
+        Path schemaFile = Files.write(directory.resolve(starWarsSchema), starWars.getBytes("UTF-8"));
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+        SchemaReloader reloader = new SchemaReloader(directory, RuntimeWiring.newRuntimeWiring().build());
+        try {
+            reloader.addListener(new SchemaReloader.Listener() {
+                @Override
+                public void schemaReloaded(GraphQLSchema schema) {
+                    throw new IllegalStateException("a broken listener");
+                }
+
+                @Override
+                public void reloadFailed(RuntimeException e) {
+                    throw new IllegalStateException("a broken listener");
+                }
+            });
+            reloader.addListener(new SchemaReloader.Listener() {
+                @Override
+                public void schemaReloaded(GraphQLSchema schema) {
+                    events.add(schema);
+                }
+
+                @Override
+                public void reloadFailed(RuntimeException e) {
+                    events.add(e);
+                }
+            });
+            reloader.start();
+
+            Files.write(schemaFile, "type Droid {".getBytes("UTF-8"));
+            assertTrue(events.poll(10, TimeUnit.SECONDS) instanceof SchemaProblem);
+            Files.write(schemaFile, starWars.replace("primaryFunction: String", "primaryFunction: String\n    model: String").getBytes("UTF-8"));
+            // a write can be seen in more than one step, so failures may still be on their way
+            Object event = events.poll(10, TimeUnit.SECONDS);
+            while (event instanceof SchemaProblem) {
+                event = events.poll(10, TimeUnit.SECONDS);
+            }
+            assertTrue(String.valueOf(event), event instanceof GraphQLSchema);
+            assertNotNull(((GraphQLObjectType) ((GraphQLSchema) event).getType("Droid")).getFieldDefinition("model"));
+        } finally {
+            reloader.close();
+            Files.delete(schemaFile);
+            Files.delete(directory);
+        }
+    }
+
+    public void testSnapshotRoundTripsAndFallsBackWhenStale() throws Exception {
+        Path directory = Files.createTempDirectory("schema");
+        Path schemaFile = Files.copy(Paths.get(path + starWarsSchema), directory.resolve(starWarsSchema));
+        Path snapshotFile = directory.resolve("schema.snapshot");
+        try {
+            List<Path> schemaFiles = Collections.singletonList(schemaFile);
+            TypeDefinitionRegistry parsed = new SchemaParser().parseAll(schemaFiles);
+            parsed.writeSnapshot(snapshotFile, SchemaSnapshot.fingerprint(schemaFiles));
+
+            TypeDefinitionRegistry loaded = new SchemaParser().parseDirectory(directory, snapshotFile);
+            assertEquals(parsed.types().keySet(), loaded.types().keySet());
+            for (String name : parsed.types().keySet()) {
+                assertTrue(name, new AstComparator().isEqual(parsed.types().get(name), loaded.types().get(name)));
+                assertEquals(name, parsed.types().get(name).getSourceLocation(), loaded.types().get(name).getSourceLocation());
+            }
+
+            Files.write(schemaFile, "schema { query: Query }\ntype Query { hello: String }".getBytes("UTF-8"));
+            assertNull(SchemaSnapshot.read(snapshotFile, SchemaSnapshot.fingerprint(schemaFiles)));
+            assertEquals(Collections.singleton("Query"), new SchemaParser().parseDirectory(directory, snapshotFile).types().keySet());
+        } finally {
+            Files.delete(schemaFile);
+            Files.delete(snapshotFile);
+            Files.delete(directory);
+        }
+    }
+
+    public void testTruncatedSnapshotFallsBackToParsing() throws Exception {
+        Path directory = Files.createTempDirectory("schema");
+        Path schemaFile = Files.copy(Paths.get(path + starWarsSchema), directory.resolve(starWarsSchema));
+        Path snapshotFile = directory.resolve("schema.snapshot");
+        try {
+            List<Path> schemaFiles = Collections.singletonList(schemaFile);
+            TypeDefinitionRegistry parsed = new SchemaParser().parseAll(schemaFiles);
+            parsed.writeSnapshot(snapshotFile, SchemaSnapshot.fingerprint(schemaFiles));
+            byte[] snapshot = Files.readAllBytes(snapshotFile);
+            Files.write(snapshotFile, Arrays.copyOf(snapshot, snapshot.length / 2));
+
+            try {
+                SchemaSnapshot.read(snapshotFile, SchemaSnapshot.fingerprint(schemaFiles));
+                fail("expected the truncated snapshot to be reported");
+            } catch (IOException expected) {
+            }
+            assertEquals(parsed.types().keySet(), new SchemaParser().parseDirectory(directory, snapshotFile).types().keySet());
+        } finally {
+            Files.delete(schemaFile);
+            Files.delete(snapshotFile);
+            Files.delete(directory);
+        }
+    }
+
+    public void testCompiledSchemaMatchesGeneratedSchema() throws Exception {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            return;
+        }
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(new File(path + starWarsSchema));
+        String source = SchemaCompiler.compile(typeRegistry, "starwars.StarWarsSchema");
+        assertTrue(source.contains("public static GraphQLSchema newSchema(RuntimeWiring wiring)"));
+
+        Path directory = Files.createTempDirectory("compiled");
+        try {
+            Path sourceFile = directory.resolve("starwars/StarWarsSchema.java");
+            Files.createDirectories(sourceFile.getParent());
+            Files.write(sourceFile, source.getBytes("UTF-8"));
+            assertEquals(0, javaCompiler.run(null, null, null, "-nowarn", "-cp", System.getProperty("java.class.path"),
+                    "-d", directory.toString(), sourceFile.toString()));
+
+            RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+            GraphQLSchema compiled;
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+                compiled = (GraphQLSchema) classLoader.loadClass("starwars.StarWarsSchema")
+                        .getMethod("newSchema", RuntimeWiring.class).invoke(null, wiring);
+            }
+            GraphQLSchema generated = new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring);
+            assertEquals(new SchemaPrinter().print(generated), new SchemaPrinter().print(compiled));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    public void testCompiledLargeSchemaMatchesGeneratedSchema() throws Exception {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            return;
+        }
+        // a binary tree of objects keeps the schema shallow while it is far too big for a single method or class
+        int count = 5000;
+        StringBuilder sdl = new StringBuilder("schema { query: Query }\ninterface Node { id: String }\ntype Query { root: T0 }\n");
+        for (int i = 0; i < count; i++) {
+            sdl.append("type T").append(i).append(" implements Node { id: String");
+            if (2 * i + 1 < count) {
+                sdl.append(" left: T").append(2 * i + 1);
+            }
+            if (2 * i + 2 < count) {
+                sdl.append(" right: T").append(2 * i + 2);
+            }
+            sdl.append(" }\n");
+        }
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(sdl.toString());
+        String source = SchemaCompiler.compile(typeRegistry, "large.LargeSchema");
+
+        Path directory = Files.createTempDirectory("compiled");
+        try {
+            Path sourceFile = directory.resolve("large/LargeSchema.java");
+            Files.createDirectories(sourceFile.getParent());
+            Files.write(sourceFile, source.getBytes("UTF-8"));
+            assertEquals(0, javaCompiler.run(null, null, null, "-nowarn", "-cp", System.getProperty("java.class.path"),
+                    "-d", directory.toString(), sourceFile.toString()));
+
+            RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+            GraphQLSchema compiled;
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+                compiled = (GraphQLSchema) classLoader.loadClass("large.LargeSchema")
+                        .getMethod("newSchema", RuntimeWiring.class).invoke(null, wiring);
+            }
+            GraphQLSchema generated = new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring);
+            assertEquals(new SchemaPrinter().print(generated), new SchemaPrinter().print(compiled));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public void testLazyRegistryParsesTypesOnDemand() {
+        File file = new File(path + starWarsSchema);
+        TypeDefinitionRegistry eager = new SchemaParser().parse(file);
+        TypeDefinitionRegistry lazy = new SchemaParser().parseLazily(file);
+
+        assertSame(lazy.getType("Droid"), lazy.getType("Droid"));
+        assertTrue(new AstComparator().isEqual(eager.getType("Droid"), lazy.getType("Droid")));
+        assertEquals(eager.getType("Droid").getSourceLocation(), lazy.getType("Droid").getSourceLocation());
+        assertNull(lazy.getType("Missing"));
+        assertEquals(eager.types().keySet(), lazy.types().keySet());
+        assertEquals(eager.scalars().keySet(), lazy.scalars().keySet());
+    }
+
+    public void testLazyRegistryPrunesWithoutParsingUnusedTypes() throws Exception {
+        String starWars = getFileContents(path + starWarsSchema);
+        Path schemaFile = Files.createTempFile("schema", ".graphqls");
+        try {
+            // the unused type cannot be parsed, so pruning only gets through if it never parses it
+            Files.write(schemaFile, (starWars + "\ninterface Vehicle { name: String }\n" +
+                    "type Starship implements Vehicle { name: String }\n" +
+                    "type Unused { id: }\n").getBytes("UTF-8"));
+            TypeDefinitionRegistry lazy = new SchemaParser().parseLazily(schemaFile.toFile());
+
+            TypeDefinitionRegistry pruned = lazy.prune(Collections.singleton("Vehicle"));
+            assertNotNull(pruned.getType("Starship"));
+            assertNull(pruned.getType("Unused"));
+            TypeDefinitionRegistry eager = new SchemaParser().parse(starWars);
+            assertEquals(eager.reachableTypes(Collections.singleton("QueryType")), lazy.reachableTypes(Collections.singleton("QueryType")));
+            assertEquals(new SchemaPrinter().print(new SchemaGenerator().makeExecutableSchema(eager, RuntimeWiring.newRuntimeWiring().build())),
+                    new SchemaPrinter().print(new SchemaGenerator().makeExecutableSchema(lazy.prune(), RuntimeWiring.newRuntimeWiring().build())));
+        } finally {
+            Files.delete(schemaFile);
+        }
+    }
+
+    public void testFrozenRegistryIsReadOnlyAndUncopied() {
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(new File(path + starWarsSchema));
+        TypeDefinitionRegistry frozen = typeRegistry.freeze();
+
+        assertTrue(frozen.isFrozen());
+        assertFalse(typeRegistry.isFrozen());
+        assertSame(frozen, frozen.freeze());
+        assertSame(frozen.types(), frozen.types());
+        assertSame(frozen.scalars(), frozen.scalars());
+        assertSame(typeRegistry.getType("Droid"), frozen.getType("Droid"));
+        assertEquals(typeRegistry.scalars().keySet(), frozen.scalars().keySet());
+        try {
+            frozen.merge(new TypeDefinitionRegistry());
+            fail("a frozen registry cannot be merged into");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    public void testConcurrentRegistryKeepsEveryContribution() throws Exception {
+        final ConcurrentTypeDefinitionRegistry typeRegistry = new ConcurrentTypeDefinitionRegistry();
+        final TypeDefinition shared = new SchemaParser().parse("type Shared { a: Int }").getType("Shared");
+        final AtomicInteger redefinitions = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final String module = "type Module" + i + " { a: Int }";
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    typeRegistry.merge(new SchemaParser().parse(module));
+                    if (typeRegistry.add(shared) != null) {
+                        redefinitions.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length + 1, typeRegistry.snapshot().types().size());
+        assertEquals(threads.length - 1, redefinitions.get());
+        assertTrue(typeRegistry.snapshot().isFrozen());
+        assertSame(typeRegistry.snapshot(), typeRegistry.snapshot());
+        TypeDefinitionRegistry before = typeRegistry.snapshot();
+        assertNull(typeRegistry.add(new SchemaParser().parse("type Late { a: Int }").getType("Late")));
+        assertNull(before.getType("Late"));
+        assertNotNull(typeRegistry.snapshot().getType("Late"));
+    }
+
+    public void testPersistentRegistryForksShareTheBase() {
+        PersistentTypeDefinitionRegistry base = new PersistentTypeDefinitionRegistry(new SchemaParser().parse(new File(path + starWarsSchema)));
+        PersistentTypeDefinitionRegistry tenant = base.fork();
+        tenant.merge(new SchemaParser().parse("type Starship { name: String }\nextend type Droid { serial: String }"));
+
+        assertSame(base.getType("Human"), tenant.getType("Human"));
+        assertNotNull(tenant.getType("Starship"));
+        assertNull(base.getType("Starship"));
+        assertEquals(1, tenant.typeExtensions().get("Droid").size());
+        assertTrue(base.typeExtensions().isEmpty());
+        assertNotNull(tenant.add(base.getType("Human")));
+        assertEquals(base.types().size() + 1, tenant.toTypeDefinitionRegistry().types().size());
+    }
+
+    public void testRegistryIndexesTypeReferences() {
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(new File(path + starWarsSchema));
+        typeRegistry.merge(new SchemaParser().parse("type Starship { name: String }\nextend type Droid { ship: Starship }"));
+
+        assertEquals(new HashSet<String>(Arrays.asList("QueryType", "Character", "Human", "Droid")), typeRegistry.referencingTypes("Character"));
+        assertEquals(new HashSet<String>(Arrays.asList("Human", "Droid")), typeRegistry.implementationsOf("Character"));
+        assertTrue(typeRegistry.referencedTypes("Droid").contains("Starship"));
+        assertTrue(typeRegistry.reachableTypes(Collections.singleton("QueryType")).contains("Starship"));
+        assertFalse(typeRegistry.reachableTypes(Collections.singleton("Episode")).contains("Character"));
+        assertEquals(typeRegistry.referencingTypes("Episode"), typeRegistry.freeze().referencingTypes("Episode"));
+    }
+
+    public void testMergeAllReportsEveryRedefinition() {
+        SchemaParser schemaParser = new SchemaParser();
+        List<TypeDefinitionRegistry> modules = new ArrayList<TypeDefinitionRegistry>();
+        for (int i = 0; i < 300; i++) {
+            modules.add(schemaParser.parse("type Module" + i + " { name: String }\nextend type Query { module" + i + ": Module" + i + " }"));
+        }
+        modules.add(schemaParser.parse("schema { query: Query }\ntype Query { modules: Int }"));
+
+        TypeDefinitionRegistry merged = TypeDefinitionRegistry.mergeAll(modules);
+        assertEquals(301, merged.types().size());
+        assertEquals(300, merged.typeExtensions().get("Query").size());
+        assertTrue(merged.referencingTypes("Module299").contains("Query"));
+
+        modules.add(schemaParser.parse("type Module7 { id: ID }\nscalar Date"));
+        modules.add(schemaParser.parse("type Module8 { id: ID }\nscalar Date"));
+        try {
+            TypeDefinitionRegistry.mergeAll(modules);
+            fail("Expected the redefinitions to be reported");
+        } catch (SchemaProblem e) {
+            assertEquals(3, e.getErrors().size());
+        }
+    }
+
+    public void testStructuralHashesFollowReferences() {
+        SchemaParser schemaParser = new SchemaParser();
+        TypeDefinitionRegistry typeRegistry = schemaParser.parse(new File(path + starWarsSchema));
+        TypeDefinitionRegistry reordered = TypeDefinitionRegistry.mergeAll(Arrays.asList(
+                schemaParser.parse("type Unrelated { name: String }"), schemaParser.parse(new File(path + starWarsSchema))));
+        assertEquals(typeRegistry.structuralHash("Character"), reordered.structuralHash("Character"));
+        assertFalse(typeRegistry.structuralHash() == reordered.structuralHash());
+
+        long query = typeRegistry.structuralHash("QueryType");
+        long human = typeRegistry.structuralHash("Human");
+        long root = typeRegistry.structuralHash();
+        typeRegistry.merge(schemaParser.parse("type Starship { name: String }\nextend type Droid { ship: Starship }"));
+        assertFalse(typeRegistry.structuralHash("QueryType") == query);
+        assertEquals(human, typeRegistry.structuralHash("Human"));
+        assertFalse(typeRegistry.structuralHash() == root);
+
+        reordered.merge(schemaParser.parse("extend type Droid { ship: Starship }\n\ntype Starship { name: String }"));
+        assertEquals(typeRegistry.structuralHash("QueryType"), reordered.freeze().structuralHash("QueryType"));
+    }
+
+    public void testDiffListsChangedTypesFieldsAndArguments() {
+        SchemaParser schemaParser = new SchemaParser();
+        TypeDefinitionRegistry before = schemaParser.parse(new File(path + starWarsSchema));
+        TypeDefinitionRegistry after = schemaParser.parse(getFileContents(path + starWarsSchema)
+                .replace("hero(episode: Episode)", "hero(episode: Episode, first: Int)")
+                .replace("    JEDI\n", "")
+                .replace("    primaryFunction: String\n", "    primaryFunction: String!\n")
+                .replace("human(id : String) : Human\n", "")
+                + "\ntype Starship { name: String }");
+
+        List<String> changes = new ArrayList<String>();
+        for (SchemaChange change : before.diff(after)) {
+            changes.add(change.getKind() + " " + change.getElement() + " " + change.getCoordinate());
+        }
+        assertEquals(Arrays.asList(
+                "ADDED ARGUMENT QueryType.hero(first:)",
+                "REMOVED FIELD QueryType.human",
+                "REMOVED ENUM_VALUE Episode.JEDI",
+                "MODIFIED FIELD Droid.primaryFunction",
+                "ADDED TYPE Starship"), changes);
+        assertTrue(before.diff(schemaParser.parse(new File(path + starWarsSchema))).isEmpty());
+    }
+
+    public void testGeneratorReportsEverySchemaProblem() {
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(
+                "schema { query: Query }\n" +
+                "type Query { hero: Hero, ship: Starship }\n" +
+                "interface Named { name: String }\n" +
+                "type Hero implements Named { id: ID }\n" +
+                "extend type Planet { size: Int }");
+        try {
+            new SchemaGenerator().makeExecutableSchema(typeRegistry, RuntimeWiring.newRuntimeWiring().build());
+            fail("expected a schema problem");
+        } catch (SchemaProblem problem) {
+            assertEquals(3, problem.getErrors().size());
+        }
+    }
+
+    public void testParallelCheckReportsErrorsInTypeOrder() {
+        // several batches of types, with problems spread across them
+        StringBuilder sdl = new StringBuilder("schema { query: Query }\ntype Query { t: T0 }\n");
+        List<String> expectedMissing = new ArrayList<String>();
+        for (int i = 0; i < 600; i++) {
+            String fieldType = i % 37 == 0 ? "Missing" + i : "T" + ((i + 1) % 600);
+            if (i % 37 == 0) {
+                expectedMissing.add(fieldType);
+            }
+            sdl.append("type T").append(i).append(" { next: ").append(fieldType).append(" }\n");
+        }
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(sdl.toString());
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+
+        List<String> sequential = schemaProblemMessages(typeRegistry, wiring, null);
+        assertEquals(expectedMissing.size(), sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertTrue(sequential.get(i), sequential.get(i).contains("'" + expectedMissing.get(i) + "'"));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(sequential, schemaProblemMessages(typeRegistry, wiring, pool));
+            assertEquals(sequential, schemaProblemMessages(typeRegistry, wiring, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> schemaProblemMessages(TypeDefinitionRegistry typeRegistry, RuntimeWiring wiring, ForkJoinPool pool) {
+        try {
+            if (pool == null) {
+                new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring);
+            } else {
+                new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring, pool);
+            }
+            fail("expected a schema problem");
+        } catch (SchemaProblem problem) {
+            List<String> messages = new ArrayList<String>();
+            for (GraphQLError error : problem.getErrors()) {
+                messages.add(error.getMessage());
+            }
+            return messages;
+        }
+        return null;
+    }
+
+    public void testFlattenFoldsTypeExtensionsOnce() {
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(new File(path + starWarsSchema));
+        typeRegistry.merge(new SchemaParser().parse(
+                "type Starship { name: String }\n" +
+                "extend type Droid { ship: Starship }\n" +
+                "extend type Droid { ship: Starship, name: String! }"));
+        TypeDefinitionRegistry frozen = typeRegistry.freeze();
+
+        TypeDefinitionRegistry flattened = frozen.flatten();
+        assertSame(flattened, frozen.flatten());
+        assertSame(flattened, flattened.flatten());
+        assertTrue(flattened.typeExtensions().isEmpty());
+        ObjectTypeDefinition droid = (ObjectTypeDefinition) flattened.getType("Droid");
+        assertEquals("ship", droid.getFieldDefinitions().get(droid.getFieldDefinitions().size() - 1).getName());
+        assertEquals(frozen.referencedTypes("Droid"), flattened.referencedTypes("Droid"));
+
+        typeRegistry.merge(new SchemaParser().parse("extend type Droid { ship: [Starship] }\nextend type Planet { size: Int }"));
+        try {
+            typeRegistry.flatten();
+            fail("expected a schema problem");
+        } catch (SchemaProblem problem) {
+            assertEquals(2, problem.getErrors().size());
+        }
+    }
+
+    public void testPruneKeepsOnlyReachableTypes() {
+        SchemaParser schemaParser = new SchemaParser();
+        TypeDefinitionRegistry typeRegistry = schemaParser.parse(new File(path + starWarsSchema));
+        typeRegistry.merge(schemaParser.parse(
+                "interface Vehicle { name: String }\n" +
+                "type Starship implements Vehicle { name: String, pilot: Human }\n" +
+                "extend type Starship { length: Float }\n" +
+                "type Unused { id: ID }\n" +
+                "scalar Date"));
+
+        TypeDefinitionRegistry pruned = typeRegistry.prune();
+        assertTrue(pruned.isFrozen());
+        assertNull(pruned.getType("Vehicle"));
+        assertNull(pruned.getType("Unused"));
+        assertFalse(pruned.scalars().containsKey("Date"));
+        assertNotNull(pruned.getType("Droid"));
+        assertEquals(pruned.types().size(), pruned.prune().types().size());
+
+        pruned = typeRegistry.prune(Collections.singleton("Vehicle"));
+        assertNotNull(pruned.getType("Starship"));
+        assertEquals(1, pruned.typeExtensions().get("Starship").size());
+        assertNull(pruned.getType("Unused"));
+
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(typeRegistry.prune(), wiring);
+        GraphQLSchema starWars = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(new File(path + starWarsSchema)), wiring);
+        assertEquals(starWars.getAllTypesAsList().size(), schema.getAllTypesAsList().size());
+    }
+
+    public void testParallelGeneratorMatchesSequentialGenerator() {
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(new File(path + starWarsSchema));
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring, pool);
+            assertEquals(new SchemaPrinter().print(new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring)),
+                    new SchemaPrinter().print(schema));
+
+            GraphQLObjectType droid = (GraphQLObjectType) schema.getType("Droid");
+            assertEquals("Character", droid.getInterfaces().get(0).getName());
+            assertSame(schema.getType("Character"), ((GraphQLList) droid.getFieldDefinition("friends").getType()).getWrappedType());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testParallelGeneratorMatchesSequentialGeneratorOnLargeSchema() {
+        // enough types in every phase to split it into batches that refer to each other
+        int n = 100;
+        StringBuilder sdl = new StringBuilder("schema { query: Query }\ntype Query { o: O0 }\n");
+        for (int i = 0; i < n; i++) {
+            sdl.append("enum E").append(i).append(" { A, B }\n");
+            sdl.append("interface I").append(i).append(" { e: E").append(i).append(" }\n");
+            sdl.append("input In").append(i).append(" { e: E").append(i).append(", next: In").append((i + 1) % n).append(" }\n");
+            sdl.append("union U").append(i).append(" = O").append(i).append(" | O").append(i + n).append("\n");
+        }
+        for (int i = 0; i < 3 * n; i++) {
+            sdl.append("type O").append(i).append(" implements I").append(i % n).append(" { e: E").append(i % n)
+                    .append(", next: O").append((i + 1) % (3 * n)).append(", u: U").append(i % n)
+                    .append(", f(in: In").append(i % n).append("): [I").append(i % n).append("!] }\n");
+        }
+        TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(sdl.toString());
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring, pool);
+            assertEquals(new SchemaPrinter().print(new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring)),
+                    new SchemaPrinter().print(schema));
+
+            GraphQLObjectType last = (GraphQLObjectType) schema.getType("O" + (3 * n - 1));
+            assertSame(schema.getType("O0"), last.getFieldDefinition("next").getType());
+            assertSame(schema.getType("U" + (n - 1)), last.getFieldDefinition("u").getType());
+            assertSame(schema.getType("I" + (n - 1)), last.getInterfaces().get(0));
+            assertSame(schema.getType("O" + (2 * n - 1)), ((GraphQLUnionType) schema.getType("U" + (n - 1))).getTypes().get(1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testGeneratorKeepsCyclicUnionMembersAndDeepChains() {
+        StringBuilder sdl = new StringBuilder("schema { query: Query }\n" +
+                "type Query { a: A, chain: T0 }\n" +
+                "type A { u: U }\n" +
+                "type B { id: ID }\n" +
+                "union U = A | B\n");
+        int depth = 3000;
+        for (int i = 0; i < depth; i++) {
+            sdl.append("type T").append(i).append(" { next: T").append((i + 1) % depth).append(" }\n");
+        }
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(sdl.toString()),
+                RuntimeWiring.newRuntimeWiring().build());
+
+        GraphQLUnionType union = (GraphQLUnionType) schema.getType("U");
+        assertEquals(2, union.getTypes().size());
+        assertSame(schema.getType("A"), union.getTypes().get(0));
+        assertSame(schema.getType("T0"), ((GraphQLObjectType) schema.getType("T" + (depth - 1))).getFieldDefinition("next").getType());
+    }
+
+    public void testGeneratorSharesWrappedTypes() {
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(new File(path + starWarsSchema)),
+                RuntimeWiring.newRuntimeWiring().build());
+        GraphQLObjectType human = (GraphQLObjectType) schema.getType("Human");
+        GraphQLObjectType droid = (GraphQLObjectType) schema.getType("Droid");
+
+        assertSame(human.getFieldDefinition("appearsIn").getType(), droid.getFieldDefinition("appearsIn").getType());
+        assertSame(human.getFieldDefinition("id").getType(), droid.getFieldDefinition("id").getType());
+        assertNotSame(droid.getFieldDefinition("id").getType(), droid.getFieldDefinition("name").getType());
+        GraphQLList episodes = (GraphQLList) ((GraphQLNonNull) droid.getFieldDefinition("appearsIn").getType()).getWrappedType();
+        assertSame(schema.getType("Episode"), episodes.getWrappedType());
+    }
+
+    public void testParseCacheServesRepeatedSchemas() {
+        ParsedSchemaCache cache = ParsedSchemaCache.newCache().maximumSize(1).build();
+        SchemaParser schemaParser = new SchemaParser(SchemaParserOptions.newOptions().cache(cache).build());
+        String starWars = getFileContents(path + starWarsSchema);
+
+        TypeDefinitionRegistry first = schemaParser.parse(starWars);
+        TypeDefinitionRegistry second = schemaParser.parse(starWars);
+        assertSame(first, second);
+        assertTrue(first.isFrozen());
+        assertSame(first.getType("Droid"), new TypeDefinitionRegistry().merge(second).getType("Droid"));
+
+        schemaParser.parse(getFileContents(path + blogSchema));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(1, cache.size());
+    }
+
+    public void testGeneratorRebuildsOnlyChangedTypes() {
+        String starWars = getFileContents(path + starWarsSchema);
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring().build();
+        TypeDefinitionRegistry previousRegistry = new SchemaParser().parse(starWars);
+        GraphQLSchema previous = new SchemaGenerator().makeExecutableSchema(previousRegistry, wiring);
+
+        TypeDefinitionRegistry newRegistry = new SchemaParser().parse(starWars.replace("primaryFunction: String", "primaryFunction: String\n    model: String"));
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(previous, previousRegistry, newRegistry, wiring);
+
+        assertNotNull(((GraphQLObjectType) schema.getType("Droid")).getFieldDefinition("model"));
+        assertNotSame(previous.getType("Droid"), schema.getType("Droid"));
+        assertNotSame(previous.getQueryType(), schema.getQueryType());
+        assertSame(previous.getType("Human"), schema.getType("Human"));
+        assertSame(previous.getType("Character"), schema.getType("Character"));
+        assertSame(previous.getType("Episode"), schema.getType("Episode"));
+        assertEquals(new SchemaPrinter().print(new SchemaGenerator().makeExecutableSchema(newRegistry, wiring)),
+                new SchemaPrinter().print(schema));
+    }
+
+    public void testClearedThreadCachesParseAgain() {
+        String starWars = getFileContents(path + starWarsSchema);
+        TypeDefinitionRegistry before = new SchemaParser().parse(starWars);
+        SchemaParser.clearThreadCaches();
+        TypeDefinitionRegistry after = new SchemaParser().parse(starWars);
+        assertEquals(before.structuralHash(), after.structuralHash());
+    }
 }